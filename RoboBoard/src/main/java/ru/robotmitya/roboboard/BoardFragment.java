@@ -327,6 +327,7 @@ public class BoardFragment extends Fragment {
                 sendMessageToBoardNodeForFaceTopic(v.getContext(), command);
                 sendMessageToBoardNodeForEyeTopic(v.getContext(), command);
                 sendMessageToBoardNodeForBodyTopic(v.getContext(), command);
+                sendMessageToBoardNodeForHeadStateTopic(v.getContext(), command);
             }
         });
 
@@ -459,6 +460,12 @@ public class BoardFragment extends Fragment {
         LocalBroadcastManager.getInstance(context).sendBroadcast(intent);
     }
 
+    private void sendMessageToBoardNodeForHeadStateTopic(final Context context, final String command) {
+        Intent intent = new Intent(AppConst.RoboBoard.Broadcast.MESSAGE_TO_HEAD_STATE_NAME);
+        intent.putExtra(AppConst.RoboBoard.Broadcast.MESSAGE_TO_HEAD_STATE_EXTRA_NAME, command);
+        LocalBroadcastManager.getInstance(context).sendBroadcast(intent);
+    }
+
     private void sendActivateBroadcastToOrientationView(final boolean value) {
         Intent intent = new Intent(AppConst.RoboBoard.Broadcast.ORIENTATION_ACTIVATE);
         intent.putExtra(AppConst.RoboBoard.Broadcast.ORIENTATION_ACTIVATE_EXTRA_ENABLED, value);
@@ -10,18 +10,22 @@ import org.ros.message.MessageListener;
 import org.ros.namespace.GraphName;
 import org.ros.node.ConnectedNode;
 import org.ros.node.Node;
+import org.ros.internal.node.topic.SubscriberIdentifier;
 import org.ros.node.NodeMain;
+import org.ros.node.topic.DefaultPublisherListener;
 import org.ros.node.topic.Publisher;
 import org.ros.node.topic.Subscriber;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ScheduledFuture;
 
 import ru.robotmitya.robocommonlib.AppConst;
 import ru.robotmitya.robocommonlib.Log;
 import ru.robotmitya.robocommonlib.MessageHelper;
+import ru.robotmitya.robocommonlib.Metrics;
+import ru.robotmitya.robocommonlib.NodeScheduler;
 import ru.robotmitya.robocommonlib.RoboState;
 import ru.robotmitya.robocommonlib.Rs;
+import ru.robotmitya.robocommonlib.TopicMetrics;
 
 /**
  * Created by dmitrydzz on 3/23/14.
@@ -33,6 +37,19 @@ public class BoardNode implements NodeMain {
     private static final short FRONT_CAM_INDEX = (short)1;
     private static final short BACK_CAM_INDEX = (short)0;
 
+    // Topics that need a state request, see requestState().
+    private static final int FACE_TOPIC = 1;
+    private static final int EYE_TOPIC = 1 << 1;
+    private static final int BODY_TOPIC = 1 << 2;
+    private static final int HEAD_STATE_TOPIC = 1 << 3;
+    private static final int ALL_TOPICS = FACE_TOPIC | EYE_TOPIC | BODY_TOPIC | HEAD_STATE_TOPIC;
+
+    // Subscribers of several topics usually connect at once, so the request waits for the rest of them a bit.
+    private static final long STATE_REQUEST_DELAY_MS = 200;
+    private static final long INITIAL_STATE_REPLY_TIMEOUT_MS = 1000;
+    private static final long MAX_STATE_REPLY_TIMEOUT_MS = 8000;
+    private static final int MAX_STATE_REQUEST_ATTEMPTS = 5;
+
     private Context mContext;
 
     private Publisher<std_msgs.String> mEyePublisher;
@@ -41,10 +58,24 @@ public class BoardNode implements NodeMain {
     private Publisher<std_msgs.String> mBodyPublisher;
     private Publisher<std_msgs.String> mHeadStatePublisher;
 
+    private final TopicMetrics mBoardMetrics = Metrics.getTopic(AppConst.RoboBoard.BOARD_TOPIC);
+    private final TopicMetrics mEyeMetrics = Metrics.getTopic(AppConst.RoboHead.EYE_TOPIC);
+    private final TopicMetrics mFaceMetrics = Metrics.getTopic(AppConst.RoboHead.FACE_TOPIC);
+    private final TopicMetrics mReflexMetrics = Metrics.getTopic(AppConst.RoboHead.REFLEX_TOPIC);
+    private final TopicMetrics mBodyMetrics = Metrics.getTopic(AppConst.RoboHead.BODY_TOPIC);
+    private final TopicMetrics mHeadStateMetrics = Metrics.getTopic(AppConst.RoboHead.HEAD_STATE_TOPIC);
+
     private BroadcastReceiver mBroadcastReceiverForBodyTopic;
     private BroadcastReceiver mBroadcastReceiverForEyeTopic;
     private BroadcastReceiver mBroadcastReceiverForFaceTopic;
     private BroadcastReceiver mBroadcastReceiverForReflexTopic;
+    private BroadcastReceiver mBroadcastReceiverForHeadStateTopic;
+
+    private NodeScheduler mScheduler;
+    private ScheduledFuture<?> mStateRequestFuture;
+    private int mStateRequestTopics;
+    private int mStateRequestAttempts;
+    private long mStateReplyTimeout;
 
     public BoardNode(final Context context) {
         mContext = context;
@@ -80,6 +111,14 @@ public class BoardNode implements NodeMain {
                 publishToReflexTopic(command);
             }
         };
+
+        mBroadcastReceiverForHeadStateTopic = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                String command = intent.getStringExtra(AppConst.RoboBoard.Broadcast.MESSAGE_TO_HEAD_STATE_EXTRA_NAME);
+                publishToHeadStateTopic(command);
+            }
+        };
     }
 
     @Override
@@ -95,6 +134,14 @@ public class BoardNode implements NodeMain {
         mBodyPublisher = connectedNode.newPublisher(AppConst.RoboHead.BODY_TOPIC, std_msgs.String._TYPE);
         mHeadStatePublisher = connectedNode.newPublisher(AppConst.RoboHead.HEAD_STATE_TOPIC, std_msgs.String._TYPE);
 
+        // A message published before the subscriber is connected is lost. So the state is requested from
+        // each topic when its subscriber connects, which also covers RoboHead restarts.
+        mScheduler = new NodeScheduler(connectedNode.getScheduledExecutorService());
+        addStateRequestListener(mFacePublisher, FACE_TOPIC);
+        addStateRequestListener(mEyePublisher, EYE_TOPIC);
+        addStateRequestListener(mBodyPublisher, BODY_TOPIC);
+        addStateRequestListener(mHeadStatePublisher, HEAD_STATE_TOPIC);
+
         RoboState.setSelectedCamIndex(NO_CAM);
 
         initializeBroadcasts();
@@ -103,12 +150,14 @@ public class BoardNode implements NodeMain {
         subscriber.addMessageListener(new MessageListener<std_msgs.String>() {
             @Override
             public void onNewMessage(std_msgs.String message) {
+                mBoardMetrics.onReceived();
                 String messageBody = message.getData();
 
                 Log.messageReceived(BoardNode.this, messageBody);
 
                 String identifier = MessageHelper.getMessageIdentifier(messageBody);
                 int value = MessageHelper.getMessageIntegerValue(messageBody);
+                onStateReply(getStateReplyTopic(identifier, (short) value));
                 if (identifier.contentEquals(Rs.Instruction.ID)) {
                     switch (value) {
                         case Rs.Instruction.CAMERA_OFF:
@@ -128,18 +177,109 @@ public class BoardNode implements NodeMain {
                 LocalBroadcastManager.getInstance(BoardNode.this.mContext).sendBroadcast(intent);
             }
         });
+    }
 
-        // This is a strange patch. After publisher is created I don't no why but it is not ready to publish messages.
-        // So I wait for 1 second and then send "IFFFF" message 6 times with 1 second period.
-        for (int i = 0; i < 6; i++) {
-            int delay = 1000 * (i + 1);
-            new Timer().schedule(new TimerTask() {
+    private void addStateRequestListener(final Publisher<std_msgs.String> publisher, final int topic) {
+        publisher.addListener(new DefaultPublisherListener<std_msgs.String>() {
+            @Override
+            public void onNewSubscriber(final Publisher<std_msgs.String> publisher,
+                                        final SubscriberIdentifier subscriberIdentifier) {
+                requestState(topic);
+            }
+        });
+    }
+
+    /**
+     * Schedules a state request to the topics. The request is repeated with a doubling timeout to the topics
+     * that haven't replied yet, up to {@link #MAX_STATE_REQUEST_ATTEMPTS} times.
+     * @param topics bit set of topics.
+     */
+    private synchronized void requestState(final int topics) {
+        mStateRequestTopics |= topics;
+        mStateRequestAttempts = 0;
+        mStateReplyTimeout = INITIAL_STATE_REPLY_TIMEOUT_MS;
+        if (mStateRequestFuture == null) {
+            mStateRequestFuture = mScheduler.schedule(new Runnable() {
                 @Override
                 public void run() {
-                    sendRoboStateRequest();
+                    sendPendingStateRequest();
                 }
-            }, delay);
+            }, STATE_REQUEST_DELAY_MS);
+        }
+    }
+
+    private synchronized void sendPendingStateRequest() {
+        mStateRequestFuture = null;
+        if (mStateRequestTopics == 0) {
+            return;
+        }
+        mStateRequestAttempts++;
+        sendRoboStateRequest(mStateRequestTopics);
+        mStateRequestFuture = mScheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                checkStateReply();
+            }
+        }, mStateReplyTimeout);
+    }
+
+    private synchronized void checkStateReply() {
+        mStateRequestFuture = null;
+        if (mStateRequestTopics == 0) {
+            return;
+        }
+        if (mStateRequestAttempts >= MAX_STATE_REQUEST_ATTEMPTS) {
+            Log.e(this, "no reply to state request (topics: " + mStateRequestTopics + ")");
+            mStateRequestTopics = 0;
+        } else {
+            mStateReplyTimeout = Math.min(mStateReplyTimeout * 2, MAX_STATE_REPLY_TIMEOUT_MS);
+            sendPendingStateRequest();
+        }
+    }
+
+    /**
+     * @param topic the topic that replied or 0 if the message is not a state reply.
+     */
+    private synchronized void onStateReply(final int topic) {
+        mStateRequestTopics &= ~topic;
+    }
+
+    /**
+     * Finds out which topic's state request a message to the board answers.
+     * @return the topic or 0 if the message is no reply to a state request.
+     */
+    private static int getStateReplyTopic(final String identifier, final short value) {
+        if (identifier.contentEquals(Rs.Mood.ID)) {
+            return FACE_TOPIC;
+        }
+        if (identifier.contentEquals(Rs.Instruction.ID)) {
+            switch (value) {
+                case Rs.Instruction.CAMERA_OFF:
+                case Rs.Instruction.CAMERA_BACK_ON:
+                case Rs.Instruction.CAMERA_FRONT_ON:
+                    return EYE_TOPIC;
+                case Rs.Instruction.ACCUMULATOR_MAIN_CHARGING_STOP:
+                case Rs.Instruction.ACCUMULATOR_MAIN_CHARGING_START:
+                    return BODY_TOPIC;
+                case Rs.Instruction.HEADLIGHTS_OFF:
+                case Rs.Instruction.HEADLIGHTS_ON:
+                case Rs.Instruction.ACCUMULATOR_ROBOHEAD_CHARGING_STOP:
+                case Rs.Instruction.ACCUMULATOR_ROBOHEAD_CHARGING_START:
+                    return HEAD_STATE_TOPIC;
+            }
+        } else if (identifier.contentEquals(Rs.BatteryResponse.ID)) {
+            // Robot battery voltages come from robo_body through the head state node.
+            return (value & 0xF000) == Rs.BatteryResponse.ROBOHEAD_BATTERY ? HEAD_STATE_TOPIC : BODY_TOPIC;
         }
+        return 0;
+    }
+
+    private synchronized void cancelStateRequest() {
+        if (mStateRequestFuture != null) {
+            mStateRequestFuture.cancel(false);
+            mStateRequestFuture = null;
+        }
+        mStateRequestTopics = 0;
     }
 
     private void initializeBroadcasts() {
@@ -151,6 +291,8 @@ public class BoardNode implements NodeMain {
                 mBroadcastReceiverForFaceTopic, new IntentFilter(AppConst.RoboBoard.Broadcast.MESSAGE_TO_FACE_NAME));
         LocalBroadcastManager.getInstance(mContext).registerReceiver(
                 mBroadcastReceiverForReflexTopic, new IntentFilter(AppConst.RoboBoard.Broadcast.MESSAGE_TO_REFLEX_NAME));
+        LocalBroadcastManager.getInstance(mContext).registerReceiver(
+                mBroadcastReceiverForHeadStateTopic, new IntentFilter(AppConst.RoboBoard.Broadcast.MESSAGE_TO_HEAD_STATE_NAME));
     }
 
     private void finalizeBroadcasts() {
@@ -158,18 +300,34 @@ public class BoardNode implements NodeMain {
         LocalBroadcastManager.getInstance(mContext).unregisterReceiver(mBroadcastReceiverForEyeTopic);
         LocalBroadcastManager.getInstance(mContext).unregisterReceiver(mBroadcastReceiverForFaceTopic);
         LocalBroadcastManager.getInstance(mContext).unregisterReceiver(mBroadcastReceiverForReflexTopic);
+        LocalBroadcastManager.getInstance(mContext).unregisterReceiver(mBroadcastReceiverForHeadStateTopic);
     }
 
     public void sendRoboStateRequest() {
+        sendRoboStateRequest(ALL_TOPICS);
+    }
+
+    private void sendRoboStateRequest(final int topics) {
         String stateRequestCommand = MessageHelper.makeMessage(Rs.Instruction.ID, Rs.Instruction.STATE_REQUEST);
-        publishToFaceTopic(stateRequestCommand);
-        publishToEyeTopic(stateRequestCommand);
-        publishToBodyTopic(stateRequestCommand);
-        publishToHeadStateTopic(MessageHelper.makeMessage(Rs.BatteryRequest.ID, Rs.BatteryRequest.ROBOHEAD_BATTERY));
+        if ((topics & FACE_TOPIC) != 0) {
+            publishToFaceTopic(stateRequestCommand);
+        }
+        if ((topics & EYE_TOPIC) != 0) {
+            publishToEyeTopic(stateRequestCommand);
+        }
+        if ((topics & BODY_TOPIC) != 0) {
+            publishToBodyTopic(stateRequestCommand);
+        }
+        if ((topics & HEAD_STATE_TOPIC) != 0) {
+            // Head state node only sends changes, so it is asked for the whole state including the battery.
+            publishToHeadStateTopic(stateRequestCommand);
+        }
     }
 
     @Override
     public void onShutdown(Node node) {
+        cancelStateRequest();
+        mScheduler.cancelAll();
         finalizeBroadcasts();
     }
 
@@ -182,34 +340,36 @@ public class BoardNode implements NodeMain {
         Log.e(this, throwable.getMessage());
     }
 
-    private void publishCommand(final Publisher<std_msgs.String> publisher, final String command) {
+    private void publishCommand(final Publisher<std_msgs.String> publisher, final TopicMetrics metrics,
+                                final String command) {
         try {
             std_msgs.String message = publisher.newMessage();
             message.setData(command);
             publisher.publish(message);
-            Log.messagePublished(this, publisher.getTopicName().toString(), command);
+            metrics.onPublished();
+            Log.messagePublished(this, publisher.getTopicName(), command);
         } catch (NullPointerException e) {
             Log.e(this, e.getMessage());
         }
     }
 
     public void publishToEyeTopic(final String message) {
-        publishCommand(mEyePublisher, message);
+        publishCommand(mEyePublisher, mEyeMetrics, message);
     }
 
     public void publishToFaceTopic(final String message) {
-        publishCommand(mFacePublisher, message);
+        publishCommand(mFacePublisher, mFaceMetrics, message);
     }
 
     public void publishToReflexTopic(final String message) {
-        publishCommand(mReflexPublisher, message);
+        publishCommand(mReflexPublisher, mReflexMetrics, message);
     }
 
     public void publishToBodyTopic(final String message) {
-        publishCommand(mBodyPublisher, message);
+        publishCommand(mBodyPublisher, mBodyMetrics, message);
     }
 
     public void publishToHeadStateTopic(final String message) {
-        publishCommand(mHeadStatePublisher, message);
+        publishCommand(mHeadStatePublisher, mHeadStateMetrics, message);
     }
 }
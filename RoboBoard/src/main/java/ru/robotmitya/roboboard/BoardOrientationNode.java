@@ -15,9 +15,6 @@ import org.ros.node.Node;
 import org.ros.node.NodeMain;
 import org.ros.node.topic.Publisher;
 
-import java.util.Timer;
-import java.util.TimerTask;
-
 import geometry_msgs.Twist;
 import ru.robotmitya.robocommonlib.*;
 
@@ -33,8 +30,9 @@ public class BoardOrientationNode implements NodeMain {
     private Intent mPointerPositionIntent = new Intent(AppConst.RoboBoard.Broadcast.ORIENTATION_POINTER_POSITION);
 
     private Publisher<Twist> mPublisher;
+    private final TopicMetrics mMetrics = Metrics.getTopic(AppConst.RoboHead.HEAD_JOYSTICK_TOPIC);
     private SensorOrientation mSensorOrientation;
-    private Timer mPublisherTimer;
+    private NodeScheduler mScheduler;
     private boolean mStarting;
     private boolean mEnabled;
 
@@ -62,8 +60,8 @@ public class BoardOrientationNode implements NodeMain {
         mSensorOrientation.start();
         mStarting = true;
 
-        mPublisherTimer = new Timer();
-        mPublisherTimer.schedule(new TimerTask() {
+        mScheduler = new NodeScheduler(connectedNode.getScheduledExecutorService());
+        mScheduler.scheduleAtFixedRate(new Runnable() {
             @Override
             public void run() {
                 if (mStarting) {
@@ -105,7 +103,8 @@ public class BoardOrientationNode implements NodeMain {
                         message.getLinear().setY(0);
                         message.getLinear().setZ(0);
                         mPublisher.publish(message);
-                        Log.messagePublished(BoardOrientationNode.this, mPublisher.getTopicName().toString(), message.toString());
+                        mMetrics.onPublished();
+                        Log.messagePublished(BoardOrientationNode.this, mPublisher.getTopicName(), message);
                     } catch (NullPointerException e) {
                         Log.e(this, e.getMessage());
                     }
@@ -141,8 +140,7 @@ public class BoardOrientationNode implements NodeMain {
 
         mSensorOrientation.stop();
 
-        mPublisherTimer.cancel();
-        mPublisherTimer.purge();
+        mScheduler.cancelAll();
 
         LocalBroadcastManager.getInstance(mContext).unregisterReceiver(mBroadcastReceiverCalibrate);
         LocalBroadcastManager.getInstance(mContext).unregisterReceiver(mBroadcastReceiverActivate);
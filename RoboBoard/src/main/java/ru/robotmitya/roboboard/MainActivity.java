@@ -15,6 +15,7 @@ import org.ros.node.NodeConfiguration;
 import org.ros.node.NodeMainExecutor;
 
 import ru.robotmitya.robocommonlib.AppConst;
+import ru.robotmitya.robocommonlib.MetricsNode;
 import ru.robotmitya.robocommonlib.SettingsHelper;
 
 import java.net.MalformedURLException;
@@ -78,6 +79,8 @@ public class MainActivity extends RosActivity {
         nodeMainExecutor.execute(mBoardFragment.getDriveJoystick(), nodeConfiguration.setNodeName(AppConst.RoboBoard.DRIVE_JOYSTICK_NODE));
         nodeMainExecutor.execute(mBoardFragment.getHeadJoystick(), nodeConfiguration.setNodeName(AppConst.RoboBoard.HEAD_JOYSTICK_NODE));
         nodeMainExecutor.execute(mBoardOrientationNode, nodeConfiguration.setNodeName(AppConst.RoboBoard.ORIENTATION_NODE));
+        nodeMainExecutor.execute(new MetricsNode(AppConst.RoboBoard.METRICS_NODE),
+                nodeConfiguration.setNodeName(AppConst.RoboBoard.METRICS_NODE));
     }
 
     private static int getRotation (Context context) {
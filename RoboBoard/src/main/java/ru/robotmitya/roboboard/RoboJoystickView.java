@@ -23,9 +23,10 @@ import org.ros.node.NodeMain;
 import org.ros.node.topic.Publisher;
 import ru.robotmitya.robocommonlib.AppConst;
 import ru.robotmitya.robocommonlib.Log;
+import ru.robotmitya.robocommonlib.Metrics;
+import ru.robotmitya.robocommonlib.NodeScheduler;
+import ru.robotmitya.robocommonlib.TopicMetrics;
 
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -71,8 +72,9 @@ public class RoboJoystickView extends View implements NodeMain {
 
     private String mTopicName;
     private boolean mIsConnected = false;
-    private Timer mPublisherTimer;
+    private NodeScheduler mScheduler;
     private Publisher<Twist> mPublisher;
+    private TopicMetrics mMetrics;
     private geometry_msgs.Twist mCurrentMessage;
     private final ReentrantReadWriteLock mReadWriteLock = new ReentrantReadWriteLock();
 
@@ -342,13 +344,15 @@ public class RoboJoystickView extends View implements NodeMain {
     public void onStart(ConnectedNode connectedNode) {
         mPublisher = connectedNode.newPublisher(mTopicName, geometry_msgs.Twist._TYPE);
         mCurrentMessage = mPublisher.newMessage();
+        mMetrics = Metrics.getTopic(mTopicName);
 
-        mPublisherTimer = new Timer();
-        mPublisherTimer.schedule(new TimerTask() {
+        mScheduler = new NodeScheduler(connectedNode.getScheduledExecutorService());
+        mScheduler.scheduleAtFixedRate(new Runnable() {
             @Override
             public void run() {
                 if (RoboJoystickView.this.isEnabled()) {
                     mPublisher.publish(getCurrentMessage());
+                    mMetrics.onPublished();
                 }
             }
         }, 0, 80);
@@ -373,12 +377,11 @@ public class RoboJoystickView extends View implements NodeMain {
 
     @Override
     public void onShutdown(Node node) {
+        mScheduler.cancelAll();
     }
 
     @Override
     public void onShutdownComplete(Node node) {
-        mPublisherTimer.cancel();
-        mPublisherTimer.purge();
         LocalBroadcastManager.getInstance(getContext()).unregisterReceiver(mBroadcastReceiverActivate);
     }
 
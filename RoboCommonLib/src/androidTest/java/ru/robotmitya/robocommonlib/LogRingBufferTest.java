@@ -0,0 +1,87 @@
+package ru.robotmitya.robocommonlib;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link LogRingBuffer} and logging to it through {@link Log}.
+ */
+public class LogRingBufferTest extends TestCase {
+    private boolean mEnabled;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mEnabled = Log.getEnabled();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Log.setEnabled(mEnabled);
+        Log.setRingBuffer(null);
+        Log.setLevel(Log.VERBOSE);
+        super.tearDown();
+    }
+
+    private static String[] getLines(final String dump) {
+        return dump.length() == 0 ? new String[0] : dump.split("\n");
+    }
+
+    @Test
+    public void testKeepsLastRecords() {
+        LogRingBuffer ringBuffer = new LogRingBuffer(3);
+        Log.setRingBuffer(ringBuffer);
+        for (int i = 0; i < 5; i++) {
+            Log.d(this, "message " + i);
+        }
+        String[] lines = getLines(Log.dump());
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].endsWith(getClass().getName() + " => message 2"));
+        assertTrue(lines[2].endsWith(getClass().getName() + " => message 4"));
+    }
+
+    @Test
+    public void testFormatsWhenDumped() {
+        LogRingBuffer ringBuffer = new LogRingBuffer(4);
+        Log.setRingBuffer(ringBuffer);
+        Log.d(this, "x=%.3f, y=%.3f", 0.5, -1);
+        Log.d(this, "%s and %s", "this", "that");
+        String[] lines = getLines(ringBuffer.dump());
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains(" D "));
+        assertTrue(lines[0].endsWith("x=0.500, y=-1.000"));
+        assertTrue(lines[1].endsWith("this and that"));
+    }
+
+    @Test
+    public void testLevel() {
+        LogRingBuffer ringBuffer = new LogRingBuffer(4);
+        Log.setRingBuffer(ringBuffer);
+        Log.setLevel(Log.WARN);
+        assertFalse(Log.isLoggable(Log.DEBUG));
+        assertTrue(Log.isLoggable(Log.WARN));
+        Log.d(this, "skipped");
+        Log.w(this, "kept");
+        String[] lines = getLines(ringBuffer.dump());
+        assertEquals(1, lines.length);
+        assertTrue(lines[0].endsWith("kept"));
+    }
+
+    @Test
+    public void testNothingIsLoggableWhenDisabled() {
+        Log.setEnabled(false);
+        assertFalse(Log.isLoggable(Log.DEBUG));
+        assertTrue(Log.isLoggable(Log.ERROR));
+        assertEquals("", Log.dump());
+    }
+
+    @Test
+    public void testClear() {
+        LogRingBuffer ringBuffer = new LogRingBuffer(2);
+        Log.setRingBuffer(ringBuffer);
+        Log.i(this, "message");
+        ringBuffer.clear();
+        assertEquals("", ringBuffer.dump());
+    }
+}
@@ -0,0 +1,49 @@
+package ru.robotmitya.robocommonlib;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link MessageBatch}.
+ */
+public class MessageBatchTest extends TestCase {
+    @Test
+    public void testBatch() {
+        MessageBatch batch = new MessageBatch(2);
+        batch.add(Rs.DriveLeft.ID, (short) 255).add('H', (short) -192);
+        assertEquals(2, batch.size());
+        assertEquals(MessageHelper.makeMessage(Rs.DriveLeft.ID, (short) 255) + "HFF40", batch.toString());
+        assertEquals(2, MessageBatch.count(batch.toString()));
+    }
+
+    @Test
+    public void testSingleMessageIsBatch() {
+        MessageBatch batch = new MessageBatch(1);
+        batch.add('G', (short) 192);
+        assertEquals(MessageHelper.makeMessage("G", (short) 192), batch.toString());
+        assertEquals(1, MessageBatch.count("G00C0"));
+    }
+
+    @Test
+    public void testClear() {
+        MessageBatch batch = new MessageBatch(1);
+        batch.add('G', (short) 1);
+        batch.clear();
+        assertEquals(0, batch.size());
+        batch.add('R', (short) 2);
+        assertEquals("R0002", batch.toString());
+    }
+
+    @Test
+    public void testFull() {
+        MessageBatch batch = new MessageBatch(1);
+        batch.add('G', (short) 1);
+        try {
+            batch.add('R', (short) 2);
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected.
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ru.robotmitya.robocommonlib;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Checks that {@link MessageCodec} produces exactly the messages {@link MessageHelper} does.
+ */
+public class MessageCodecTest extends TestCase {
+    private static final short[] VALUES = {0, 1, 192, -192, -1, Short.MAX_VALUE, Short.MIN_VALUE, 0x1974};
+
+    @Test
+    public void testEncodeMatchesMessageHelper() {
+        byte[] bytes = new byte[MessageHelper.MESSAGE_LENGTH + 2];
+        for (short value : VALUES) {
+            int length = MessageCodec.encode('G', value, bytes, 2);
+            assertEquals(MessageHelper.MESSAGE_LENGTH, length);
+            assertEquals(MessageHelper.makeMessage("G", value), new String(bytes, 2, length));
+        }
+    }
+
+    @Test
+    public void testEncodeToByteBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocate(2 * MessageHelper.MESSAGE_LENGTH);
+        MessageCodec.encode('L', (short) 0x74, buffer);
+        MessageCodec.encode('R', (short) -192, buffer);
+        assertEquals(2 * MessageHelper.MESSAGE_LENGTH, buffer.position());
+        assertEquals("L0074RFF40", new String(buffer.array()));
+    }
+
+    @Test
+    public void testDecode() {
+        byte[] bytes = "xG00C0".getBytes();
+        assertEquals('G', MessageCodec.decodeIdentifier(bytes, 1));
+        assertEquals(192, MessageCodec.decodeValue(bytes, 1));
+
+        bytes = "Gff40".getBytes();
+        assertEquals(-192, MessageCodec.decodeValue(bytes, 0));
+
+        ByteBuffer buffer = ByteBuffer.wrap("I0012".getBytes());
+        assertEquals('I', MessageCodec.decodeIdentifier(buffer));
+        assertEquals(Rs.Instruction.CAMERA_FRONT_ON, MessageCodec.decodeValue(buffer));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void testRoundTrip() {
+        byte[] bytes = new byte[MessageHelper.MESSAGE_LENGTH];
+        for (int value = Short.MIN_VALUE; value <= Short.MAX_VALUE; value++) {
+            MessageCodec.encode('W', (short) value, bytes, 0);
+            assertEquals((short) value, MessageCodec.decodeValue(bytes, 0));
+        }
+    }
+
+    @Test
+    public void testDecodeInvalidValue() {
+        try {
+            MessageCodec.decodeValue("G12X4".getBytes(), 0);
+            fail();
+        } catch (NumberFormatException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testHexValue() {
+        assertEquals(0, MessageCodec.hexValue('0'));
+        assertEquals(15, MessageCodec.hexValue('F'));
+        assertEquals(15, MessageCodec.hexValue('f'));
+        assertEquals(-1, MessageCodec.hexValue('G'));
+        assertEquals(-1, MessageCodec.hexValue(-1));
+        assertEquals(-1, MessageCodec.hexValue(0x2116));
+    }
+
+    @Test
+    public void testStringWrapper() {
+        assertEquals("GFF40", MessageHelper.makeMessage('G', (short) -192));
+        assertEquals('E', MessageHelper.toIdentifierChar("MOVE"));
+        assertEquals(' ', MessageHelper.toIdentifierChar(""));
+        assertEquals('D', MessageHelper.getMessageIdentifierChar("D1234"));
+        assertEquals(' ', MessageHelper.getMessageIdentifierChar(""));
+        assertEquals(0xFF40, MessageHelper.getMessageIntegerValue("GFF40"));
+        assertEquals(0x123, MessageHelper.getMessageIntegerValue("G123"));
+        assertEquals(0x2345, MessageHelper.getMessageIntegerValue("G12345"));
+    }
+}
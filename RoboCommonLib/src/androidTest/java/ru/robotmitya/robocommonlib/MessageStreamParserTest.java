@@ -0,0 +1,103 @@
+package ru.robotmitya.robocommonlib;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses local streams with {@link MessageStreamParser}.
+ */
+public class MessageStreamParserTest extends TestCase {
+    private final List<String> mMessages = new ArrayList<String>();
+
+    private final MessageStreamParser.Listener mListener = new MessageStreamParser.Listener() {
+        @Override
+        public void onMessage(final char identifier, final short value) {
+            mMessages.add(MessageHelper.makeMessage(identifier, value));
+        }
+    };
+
+    private void parse(final MessageStreamParser parser, final String text) {
+        byte[] bytes = text.getBytes();
+        parser.parse(bytes, 0, bytes.length, mListener);
+    }
+
+    @Test
+    public void testWholeMessages() {
+        MessageStreamParser parser = new MessageStreamParser();
+        parse(parser, "G1234I0012Rff40");
+        assertEquals(3, mMessages.size());
+        assertEquals("G1234", mMessages.get(0));
+        assertEquals("I0012", mMessages.get(1));
+        assertEquals("RFF40", mMessages.get(2));
+        assertEquals(3, parser.getMessageCount());
+        assertEquals(0, parser.getSkippedByteCount());
+    }
+
+    @Test
+    public void testMessageSplitBetweenChunks() {
+        MessageStreamParser parser = new MessageStreamParser();
+        parse(parser, "G12");
+        assertEquals(0, mMessages.size());
+        parse(parser, "34I");
+        assertEquals(1, mMessages.size());
+        parse(parser, "0");
+        parse(parser, "012");
+        assertEquals(2, mMessages.size());
+        assertEquals("G1234", mMessages.get(0));
+        assertEquals("I0012", mMessages.get(1));
+    }
+
+    @Test
+    public void testSkipsBrokenPrefix() {
+        MessageStreamParser parser = new MessageStreamParser();
+        parse(parser, "1234I0012");
+        assertEquals(1, mMessages.size());
+        assertEquals("I0012", mMessages.get(0));
+        assertEquals(4, parser.getSkippedByteCount());
+    }
+
+    @Test
+    public void testResynchronizesOnLostDigits() {
+        MessageStreamParser parser = new MessageStreamParser();
+        parse(parser, "G12I0012L0074");
+        assertEquals(2, mMessages.size());
+        assertEquals("I0012", mMessages.get(0));
+        assertEquals("L0074", mMessages.get(1));
+        assertEquals(1, parser.getBrokenMessageCount());
+        assertEquals(3, parser.getSkippedByteCount());
+    }
+
+    @Test
+    public void testReset() {
+        MessageStreamParser parser = new MessageStreamParser();
+        parse(parser, "G12");
+        parser.reset();
+        parse(parser, "34I0012");
+        assertEquals(1, mMessages.size());
+        assertEquals("I0012", mMessages.get(0));
+    }
+
+    @Test
+    public void testReadFromStream() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append(MessageHelper.makeMessage('V', (short) i));
+        }
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(text.toString().getBytes());
+        // The buffer size is not a multiple of the message length on purpose.
+        MessageStreamParser parser = new MessageStreamParser(7);
+        while (parser.read(inputStream, mListener) >= 0) {
+            // Keep reading.
+        }
+        assertEquals(1000, mMessages.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(MessageHelper.makeMessage('V', (short) i), mMessages.get(i));
+        }
+    }
+}
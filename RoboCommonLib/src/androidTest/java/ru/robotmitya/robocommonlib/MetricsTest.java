@@ -0,0 +1,69 @@
+package ru.robotmitya.robocommonlib;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link Metrics}, {@link TopicMetrics} and {@link RateMeter}.
+ */
+public class MetricsTest extends TestCase {
+    @Override
+    protected void tearDown() throws Exception {
+        Metrics.clear();
+        super.tearDown();
+    }
+
+    @Test
+    public void testGetTopic() {
+        TopicMetrics topic = Metrics.getTopic("robot_mitya/test");
+        assertTrue(topic == Metrics.getTopic("robot_mitya/test"));
+        assertFalse(topic == Metrics.getTopic("robot_mitya/other"));
+        assertEquals("robot_mitya/test", topic.getName());
+    }
+
+    @Test
+    public void testRate() {
+        RateMeter meter = new RateMeter();
+        meter.getRate(0);
+        for (int i = 0; i < 25; i++) {
+            meter.mark();
+        }
+        assertEquals(25, meter.getCount());
+        assertEquals(12.5, meter.getRate(2000000000L), 1e-9);
+        meter.mark();
+        assertEquals(1, meter.getRate(3000000000L), 1e-9);
+        assertEquals(0, meter.getRate(4000000000L), 1e-9);
+        assertEquals(26, meter.getCount());
+    }
+
+    @Test
+    public void testTopicMetrics() {
+        TopicMetrics input = Metrics.getTopic("robot_mitya/input");
+        TopicMetrics output = Metrics.getTopic("robot_mitya/output");
+        long receivedNanos = input.onReceived();
+        output.onPublished(receivedNanos);
+        output.onPublished();
+        assertEquals(1, input.getReceived().getCount());
+        assertEquals(0, input.getPublished().getCount());
+        assertEquals(2, output.getPublished().getCount());
+        assertEquals(1, output.getLatency().getCount());
+        assertEquals(0, input.getLatency().getCount());
+    }
+
+    @Test
+    public void testReport() {
+        Metrics.getTopic("robot_mitya/b").onPublished(System.nanoTime());
+        Metrics.getTopic("robot_mitya/a").onReceived();
+        String[] lines = Metrics.report().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("robot_mitya/a: in "));
+        assertFalse(lines[0].contains("latency"));
+        assertTrue(lines[1].startsWith("robot_mitya/b: in 0.0/s, out "));
+        assertTrue(lines[1].contains("latency us p50="));
+        assertTrue(lines[1].endsWith(" n=1"));
+
+        // Latencies are reported per interval.
+        assertFalse(Metrics.report().contains("latency"));
+    }
+}
@@ -0,0 +1,45 @@
+package ru.robotmitya.robocommonlib;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link Microbenchmark}.
+ */
+public class MicrobenchmarkTest extends TestCase {
+    @Test
+    public void testRunsWarmupAndRounds() {
+        final int[] calls = new int[1];
+        Microbenchmark benchmark = new Microbenchmark(10, 3);
+        Microbenchmark.Result result = benchmark.measure("test", new Microbenchmark.Task() {
+            @Override
+            public long run(final int iterations) {
+                assertEquals(10, iterations);
+                calls[0]++;
+                return iterations;
+            }
+        });
+        assertEquals(4, calls[0]);
+        assertEquals(40, benchmark.getSink());
+        assertEquals("test", result.getName());
+        assertTrue(result.getMinNanos() >= 0);
+        assertTrue(result.getMedianNanos() >= result.getMinNanos());
+    }
+
+    @Test
+    public void testRejectsInvalidArguments() {
+        try {
+            new Microbenchmark(0, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+        try {
+            new Microbenchmark(1, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ru.robotmitya.robocommonlib;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link NodeScheduler}.
+ */
+public class NodeSchedulerTest extends TestCase {
+    private ScheduledExecutorService mExecutorService;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mExecutorService = Executors.newScheduledThreadPool(1);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mExecutorService.shutdownNow();
+        super.tearDown();
+    }
+
+    @Test
+    public void testOneShotTaskIsForgottenAfterRun() throws Exception {
+        NodeScheduler scheduler = new NodeScheduler(mExecutorService);
+        final CountDownLatch latch = new CountDownLatch(1);
+        ScheduledFuture<?> future = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 10);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        future.get(1, TimeUnit.SECONDS);
+        assertEquals(0, scheduler.getTaskCount());
+    }
+
+    @Test
+    public void testPeriodicTaskSurvivesExceptions() throws Exception {
+        NodeScheduler scheduler = new NodeScheduler(mExecutorService);
+        final AtomicInteger runCount = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(3);
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                runCount.incrementAndGet();
+                latch.countDown();
+                throw new IllegalStateException("test");
+            }
+        }, 0, 10);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertEquals(1, scheduler.getTaskCount());
+
+        scheduler.cancelAll();
+        assertEquals(0, scheduler.getTaskCount());
+        int count = runCount.get();
+        Thread.sleep(50);
+        assertTrue(runCount.get() <= count + 1);
+    }
+
+    @Test
+    public void testCancelAll() throws Exception {
+        NodeScheduler scheduler = new NodeScheduler(mExecutorService);
+        final AtomicInteger runCount = new AtomicInteger();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                runCount.incrementAndGet();
+            }
+        };
+        ScheduledFuture<?> future = scheduler.schedule(task, 1000);
+        scheduler.scheduleAtFixedRate(task, 1000, 1000);
+        assertEquals(2, scheduler.getTaskCount());
+        scheduler.cancelAll();
+        assertTrue(future.isCancelled());
+
+        // Tasks scheduled after shutdown don't run.
+        assertTrue(scheduler.schedule(task, 0).isCancelled());
+        Thread.sleep(50);
+        assertEquals(0, runCount.get());
+        assertEquals(0, scheduler.getTaskCount());
+    }
+}
@@ -0,0 +1,102 @@
+package ru.robotmitya.robocommonlib;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tests {@link RoboState}.
+ */
+public class RoboStateTest extends TestCase {
+    @Override
+    protected void tearDown() throws Exception {
+        RoboState.reset();
+        super.tearDown();
+    }
+
+    @Test
+    public void testSetReturnsWhetherChanged() {
+        long version = RoboState.getSnapshot().getVersion();
+        assertTrue(RoboState.setMood(Rs.Mood.FACE_HAPPY));
+        assertFalse(RoboState.setMood(Rs.Mood.FACE_HAPPY));
+        assertEquals(Rs.Mood.FACE_HAPPY, RoboState.getMood());
+        assertEquals(version + 1, RoboState.getSnapshot().getVersion());
+    }
+
+    @Test
+    public void testSnapshotIsImmutable() {
+        RoboState.Snapshot snapshot = RoboState.getSnapshot();
+        RoboState.setSelectedCamIndex((short) AppConst.Common.Camera.BACK);
+        assertFalse(snapshot.getIsReverse());
+        assertTrue(RoboState.getSnapshot().getIsReverse());
+        assertEquals(AppConst.Common.Camera.BACK, RoboState.getSnapshot().getSelectedCamIndex());
+    }
+
+    @Test
+    public void testListener() {
+        final List<RoboState.Snapshot> changes = new ArrayList<RoboState.Snapshot>();
+        RoboState.Listener listener = new RoboState.Listener() {
+            @Override
+            public void onStateChanged(final RoboState.Snapshot previous, final RoboState.Snapshot current) {
+                assertEquals(previous.getVersion() + 1, current.getVersion());
+                changes.add(current);
+            }
+        };
+        RoboState.addListener(listener);
+        try {
+            RoboState.setHeadlights(Rs.Instruction.HEADLIGHTS_ON);
+            RoboState.setHeadlights(Rs.Instruction.HEADLIGHTS_ON);
+            RoboState.setRoboHeadBatteryState((short) 0x2150);
+        } finally {
+            RoboState.removeListener(listener);
+        }
+        RoboState.setHeadlights(Rs.Instruction.HEADLIGHTS_OFF);
+
+        assertEquals(2, changes.size());
+        assertEquals(Rs.Instruction.HEADLIGHTS_ON, changes.get(0).getHeadlights());
+        assertEquals(Rs.Instruction.HEADLIGHTS_ON, changes.get(1).getHeadlights());
+        assertEquals((short) 0x2150, changes.get(1).getRoboHeadBatteryState());
+    }
+
+    @Test
+    public void testConcurrentChangesAreNotLost() throws Exception {
+        final int changeCount = 10000;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[2];
+        for (int i = 0; i < threads.length; i++) {
+            final boolean mood = i == 0;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    // Negative values differ from the initial ones, so every set is a change.
+                    for (int j = 1; j <= changeCount; j++) {
+                        if (mood) {
+                            RoboState.setMood((short) -j);
+                        } else {
+                            RoboState.setRoboHeadBatteryState((short) -j);
+                        }
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        long version = RoboState.getSnapshot().getVersion();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        RoboState.Snapshot snapshot = RoboState.getSnapshot();
+        assertEquals(-changeCount, snapshot.getMood());
+        assertEquals(-changeCount, snapshot.getRoboHeadBatteryState());
+        assertEquals(version + 2 * changeCount, snapshot.getVersion());
+    }
+}
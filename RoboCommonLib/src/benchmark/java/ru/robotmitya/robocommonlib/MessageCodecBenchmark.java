@@ -0,0 +1,85 @@
+package ru.robotmitya.robocommonlib;
+
+import android.test.InstrumentationTestCase;
+
+import org.junit.Test;
+
+/**
+ * Compares the string based {@link MessageHelper} with the byte level {@link MessageCodec}.
+ * <p>
+ * Not part of the test run. Run with {@code ./gradlew :RoboCommonLib:connectedAndroidTest -Pbenchmark},
+ * the ns/op values are sent as instrumentation status and logged.
+ */
+public class MessageCodecBenchmark extends InstrumentationTestCase {
+    private static final int ITERATIONS = 100000;
+    private static final int ROUNDS = 9;
+
+    private static final String MESSAGE = "GFF40";
+
+    private final Microbenchmark mBenchmark = new Microbenchmark(ITERATIONS, ROUNDS);
+
+    @Test
+    public void testEncode() {
+        final byte[] buffer = new byte[MessageHelper.MESSAGE_LENGTH];
+        assertEquals(MESSAGE, MessageHelper.makeMessage('G', (short) 0xFF40));
+        MessageCodec.encode('G', (short) 0xFF40, buffer, 0);
+        assertEquals(MESSAGE, new String(buffer));
+
+        report(mBenchmark.measure("encode_string", new Microbenchmark.Task() {
+            @Override
+            public long run(final int iterations) {
+                long sink = 0;
+                for (int i = 0; i < iterations; i++) {
+                    sink += MessageHelper.makeMessage('G', (short) i).charAt(4);
+                }
+                return sink;
+            }
+        }), mBenchmark.measure("encode_bytes", new Microbenchmark.Task() {
+            @Override
+            public long run(final int iterations) {
+                long sink = 0;
+                for (int i = 0; i < iterations; i++) {
+                    MessageCodec.encode('G', (short) i, buffer, 0);
+                    sink += buffer[4];
+                }
+                return sink;
+            }
+        }));
+    }
+
+    @Test
+    public void testDecode() {
+        final String message = MESSAGE;
+        final byte[] bytes = MESSAGE.getBytes();
+        assertEquals(0xFF40, MessageHelper.getMessageIntegerValue(message));
+        assertEquals((short) 0xFF40, MessageCodec.decodeValue(bytes, 0));
+
+        report(mBenchmark.measure("decode_string", new Microbenchmark.Task() {
+            @Override
+            public long run(final int iterations) {
+                long sink = 0;
+                for (int i = 0; i < iterations; i++) {
+                    sink += MessageHelper.getMessageIdentifierChar(message)
+                            + MessageHelper.getMessageIntegerValue(message);
+                }
+                return sink;
+            }
+        }), mBenchmark.measure("decode_bytes", new Microbenchmark.Task() {
+            @Override
+            public long run(final int iterations) {
+                long sink = 0;
+                for (int i = 0; i < iterations; i++) {
+                    sink += MessageCodec.decodeIdentifier(bytes, 0) + MessageCodec.decodeValue(bytes, 0);
+                }
+                return sink;
+            }
+        }));
+    }
+
+    private void report(final Microbenchmark.Result... results) {
+        for (Microbenchmark.Result result : results) {
+            Log.i(this, result.toString());
+        }
+        getInstrumentation().sendStatus(0, Microbenchmark.toBundle(results));
+    }
+}
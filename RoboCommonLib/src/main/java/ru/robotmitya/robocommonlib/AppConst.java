@@ -11,6 +11,7 @@ public final class AppConst {
         public static final String DRIVE_JOYSTICK_NODE = "robot_mitya/drive_joystick_node";
         public static final String HEAD_JOYSTICK_NODE = "robot_mitya/head_joystick_node";
         public static final String ORIENTATION_NODE = "robot_mitya/board_orientation_node";
+        public static final String METRICS_NODE = "robot_mitya/board_metrics_node";
 
         public static final String BOARD_TOPIC = "robot_mitya/board";
         public static final String CAMERA_TOPIC = "/camera/image/compressed";
@@ -33,6 +34,9 @@ public final class AppConst {
             public static final String MESSAGE_TO_REFLEX_NAME = "ru.robotmitya.roboboard.MESSAGE-TO-REFLEX";
             public static final String MESSAGE_TO_REFLEX_EXTRA_NAME = "message";
 
+            public static final String MESSAGE_TO_HEAD_STATE_NAME = "ru.robotmitya.roboboard.MESSAGE-TO-HEAD-STATE";
+            public static final String MESSAGE_TO_HEAD_STATE_EXTRA_NAME = "message";
+
             // Will be used to send signal to BoardNode to send command that will change remote control mode in RoboHead.
             //todo Send command to RoboHead to change remote control mode
             public static final String REMOTE_CONTROL_MODE_SETTINGS_NAME = "ru.robotmitya.robohead.REMOTE_CONTROL_MODE_SETTINGS";
@@ -58,6 +62,7 @@ public final class AppConst {
         public static final String REFLEX_NODE = "robot_mitya/reflex_node";
         public static final String DRIVE_JOYSTICK_ANALYZER_NODE = "robot_mitya/drive_joystick_analyzer_node";
         public static final String HEAD_JOYSTICK_ANALYZER_NODE = "robot_mitya/head_joystick_analyzer_node";
+        public static final String METRICS_NODE = "robot_mitya/head_metrics_node";
 
         public static final String EYE_TOPIC = "robot_mitya/eye";
         public static final String FACE_TOPIC = "robot_mitya/face";
@@ -69,6 +74,9 @@ public final class AppConst {
     }
 
     public final class Common {
+        // Message rates and latencies of both apps (see MetricsNode).
+        public static final String STATS_TOPIC = "robot_mitya/stats";
+
         public final class Camera {
             public static final int DISABLED = 0;
             public static final int FRONT = 1;
@@ -0,0 +1,125 @@
+package ru.robotmitya.robocommonlib;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in microseconds with fixed memory and relative error of 1/16 (HDR-style).
+ * Values below 16 us have their own buckets, every greater power of two range is split into 16
+ * buckets of equal width. Values above {@link #MAX_VALUE} are counted as {@link #MAX_VALUE}.
+ * <p>
+ * Recording is lock-free and doesn't allocate, so it can be done from any thread. Reading while
+ * other threads record gives approximate but consistent enough results for reporting.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 30;
+
+    /**
+     * Max value that is recorded exactly enough, about 36 minutes.
+     */
+    public static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final AtomicLongArray mCounts =
+            new AtomicLongArray((MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * @param micros latency in microseconds. Negative values are counted as 0.
+     */
+    public void record(final long micros) {
+        long value = Math.min(Math.max(micros, 0), MAX_VALUE);
+        mCounts.incrementAndGet(getBucketIndex(value));
+        mCount.incrementAndGet();
+        mSum.addAndGet(value);
+        long max;
+        do {
+            max = mMax.get();
+        } while ((value > max) && !mMax.compareAndSet(max, value));
+    }
+
+    /**
+     * Records the time passed since startNanos.
+     * @param startNanos {@link System#nanoTime()} at the start of the measured interval.
+     */
+    public void recordSince(final long startNanos) {
+        record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+    }
+
+    public long getCount() {
+        return mCount.get();
+    }
+
+    /**
+     * @return max recorded value in microseconds or 0 if nothing is recorded.
+     */
+    public long getMax() {
+        return mMax.get();
+    }
+
+    /**
+     * @return mean of recorded values in microseconds or 0 if nothing is recorded.
+     */
+    public double getMean() {
+        long count = mCount.get();
+        return count == 0 ? 0 : (double) mSum.get() / count;
+    }
+
+    /**
+     * @param percentile percentile in the range [0, 100].
+     * @return value in microseconds that percentile of recorded values don't exceed, rounded up to
+     * the bucket bound, or 0 if nothing is recorded.
+     */
+    public long getPercentile(final double percentile) {
+        long total = 0;
+        for (int i = 0; i < mCounts.length(); i++) {
+            total += mCounts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100));
+        long count = 0;
+        for (int i = 0; i < mCounts.length(); i++) {
+            count += mCounts.get(i);
+            if (count >= rank) {
+                return Math.min(getBucketUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Forgets all recorded values, e.g. to start the next reporting interval.
+     */
+    public void reset() {
+        for (int i = 0; i < mCounts.length(); i++) {
+            mCounts.set(i, 0);
+        }
+        mCount.set(0);
+        mSum.set(0);
+        mMax.set(0);
+    }
+
+    static int getBucketIndex(final long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) (value >> shift) - SUB_BUCKET_COUNT;
+    }
+
+    static long getBucketUpperBound(final int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long lowerBound = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+}
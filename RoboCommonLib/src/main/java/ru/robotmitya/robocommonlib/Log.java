@@ -12,13 +12,30 @@ import org.ros.node.NodeMain;
  */
 @SuppressWarnings("UnusedDeclaration")
 public final class Log {
+    public static final int VERBOSE = android.util.Log.VERBOSE;
+    public static final int DEBUG = android.util.Log.DEBUG;
+    public static final int INFO = android.util.Log.INFO;
+    public static final int WARN = android.util.Log.WARN;
+    public static final int ERROR = android.util.Log.ERROR;
+
     /**
-     * Flag to enable/disable logging.
+     * Flag to enable/disable logging to logcat. Errors are always logged.
      */
     private static boolean ENABLE_LOG;
 
+    /**
+     * Records below this level are skipped (except errors).
+     */
+    private static int LEVEL;
+
+    /**
+     * In-memory sink or null.
+     */
+    private static volatile LogRingBuffer RING_BUFFER;
+
     static {
         ENABLE_LOG = false;
+        LEVEL = VERBOSE;
     }
 
     /**
@@ -36,14 +53,53 @@ public final class Log {
         return ENABLE_LOG;
     }
 
+    /**
+     * @param level min level of records to log. Errors are always logged.
+     */
+    public static void setLevel(final int level) {
+        LEVEL = level;
+    }
+
+    public static int getLevel() {
+        return LEVEL;
+    }
+
+    /**
+     * @param ringBuffer in-memory sink that records are also written to or null to disable it.
+     */
+    public static void setRingBuffer(final LogRingBuffer ringBuffer) {
+        RING_BUFFER = ringBuffer;
+    }
+
+    public static LogRingBuffer getRingBuffer() {
+        return RING_BUFFER;
+    }
+
+    /**
+     * @return text of the records in the ring buffer or empty string if there is no ring buffer.
+     */
+    public static String dump() {
+        LogRingBuffer ringBuffer = RING_BUFFER;
+        return ringBuffer == null ? "" : ringBuffer.dump();
+    }
+
+    /**
+     * Guard for call sites that have to do some work to build a message.
+     * @param level record level.
+     * @return true if a record of this level would be written anywhere.
+     */
+    public static boolean isLoggable(final int level) {
+        return (level >= ERROR) || ((ENABLE_LOG || (RING_BUFFER != null)) && (level >= LEVEL));
+    }
+
     /**
      * Log details.
      * @param source object - the source of event.
      * @param msg message text.
      */
     public static void v(final Object source, final String msg) {
-        if (ENABLE_LOG) {
-            android.util.Log.v(LOG_TAG, source.getClass().getName() + " => " + msg);
+        if (isLoggable(VERBOSE)) {
+            log(VERBOSE, source.getClass(), null, msg, LogRingBuffer.KIND_TEXT, null, null, 0, 0);
         }
     }
 
@@ -53,8 +109,8 @@ public final class Log {
      * @param msg message text.
      */
     public static void w(final Object source, final String msg) {
-        if (ENABLE_LOG) {
-            android.util.Log.w(LOG_TAG, source.getClass().getName() + " => " + msg);
+        if (isLoggable(WARN)) {
+            log(WARN, source.getClass(), null, msg, LogRingBuffer.KIND_TEXT, null, null, 0, 0);
         }
     }
 
@@ -64,8 +120,8 @@ public final class Log {
      * @param msg message text.
      */
     public static void i(final Object source, final String msg) {
-        if (ENABLE_LOG) {
-            android.util.Log.i(LOG_TAG, source.getClass().getName() + " => " + msg);
+        if (isLoggable(INFO)) {
+            log(INFO, source.getClass(), null, msg, LogRingBuffer.KIND_TEXT, null, null, 0, 0);
         }
     }
 
@@ -75,8 +131,31 @@ public final class Log {
      * @param msg message text.
      */
     public static void d(final Object source, final String msg) {
-        if (ENABLE_LOG) {
-            android.util.Log.d(LOG_TAG, source.getClass().getName() + " => " + msg);
+        if (isLoggable(DEBUG)) {
+            log(DEBUG, source.getClass(), null, msg, LogRingBuffer.KIND_TEXT, null, null, 0, 0);
+        }
+    }
+
+    /**
+     * Log debug info. The message is formatted only if it is written to logcat.
+     * @param source object - the source of event.
+     * @param format {@link String#format} format.
+     * @param arg1 first argument.
+     * @param arg2 second argument.
+     */
+    public static void d(final Object source, final String format, final Object arg1, final Object arg2) {
+        if (isLoggable(DEBUG)) {
+            log(DEBUG, source.getClass(), null, format, LogRingBuffer.KIND_OBJECTS, arg1, arg2, 0, 0);
+        }
+    }
+
+    /**
+     * Log debug info without boxing the arguments.
+     * @see #d(Object, String, Object, Object)
+     */
+    public static void d(final Object source, final String format, final double arg1, final double arg2) {
+        if (isLoggable(DEBUG)) {
+            log(DEBUG, source.getClass(), null, format, LogRingBuffer.KIND_DOUBLES, null, null, arg1, arg2);
         }
     }
 
@@ -104,24 +183,55 @@ public final class Log {
      * @param msg message text.
      */
     public static void e(final Object source, final String msg) {
-        android.util.Log.e(LOG_TAG, source.getClass().getName() + " => " + msg);
+        log(ERROR, source.getClass(), null, msg, LogRingBuffer.KIND_TEXT, null, null, 0, 0);
     }
 
-    public static void messagePublished(final NodeMain node, final String topic, final String message) {
-        if (ENABLE_LOG) {
-            android.util.Log.d(LOG_TAG, node.getDefaultNodeName() + " => published to " + topic + ": " + message);
+    /**
+     * @param topic topic name. Converted to string only if the record is written.
+     * @param message message text or ROS message. Converted to string only if the record is written.
+     */
+    public static void messagePublished(final NodeMain node, final Object topic, final Object message) {
+        if (isLoggable(DEBUG)) {
+            log(DEBUG, node, null, "published to %s: %s", LogRingBuffer.KIND_OBJECTS, topic, message, 0, 0);
         }
     }
 
     public static void messageReceived(final NodeMain node, final String message) {
-        if (ENABLE_LOG) {
-            android.util.Log.d(LOG_TAG, node.getDefaultNodeName() + " => received: " + message);
+        if (isLoggable(DEBUG)) {
+            log(DEBUG, node, "received: ", message, LogRingBuffer.KIND_TEXT, null, null, 0, 0);
         }
     }
 
     public static void messageReceived(final NodeMain node, final String from, final String message) {
-        if (ENABLE_LOG) {
-            android.util.Log.d(LOG_TAG, node.getDefaultNodeName() + " => received from " + from + ": " + message);
+        if (isLoggable(DEBUG)) {
+            log(DEBUG, node, null, "received from %s: %s", LogRingBuffer.KIND_OBJECTS, from, message, 0, 0);
+        }
+    }
+
+    /**
+     * Logs received values without formatting them unless the record is written to logcat.
+     * @param format {@link String#format} format for two doubles.
+     */
+    public static void messageReceived(final NodeMain node, final String format, final double arg1, final double arg2) {
+        if (isLoggable(DEBUG)) {
+            log(DEBUG, node, "received: ", format, LogRingBuffer.KIND_DOUBLES, null, null, arg1, arg2);
+        }
+    }
+
+    /**
+     * @param source class or node that is the source of event.
+     */
+    private static void log(final int level, final Object source, final String prefix, final String format,
+                            final int kind, final Object object1, final Object object2,
+                            final double double1, final double double2) {
+        LogRingBuffer ringBuffer = RING_BUFFER;
+        if (ringBuffer != null) {
+            ringBuffer.add(level, source, prefix, format, kind, object1, object2, double1, double2);
+        }
+        if (ENABLE_LOG || (level >= ERROR)) {
+            String text = LogRingBuffer.format(format, kind, object1, object2, double1, double2);
+            android.util.Log.println(level, LOG_TAG, LogRingBuffer.getSourceName(source) + " => "
+                    + (prefix == null ? text : prefix + text));
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,142 @@
+package ru.robotmitya.robocommonlib;
+
+import org.ros.node.NodeMain;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Keeps the last log records in memory so that they can be dumped on demand, e.g. from a field
+ * device where logcat isn't available. Records are preallocated and reused. Message arguments are
+ * stored as they are and formatted only when the buffer is dumped, so adding a record doesn't
+ * allocate unless an argument has to be boxed.
+ */
+public final class LogRingBuffer {
+    static final int KIND_TEXT = 0;
+    static final int KIND_OBJECTS = 1;
+    static final int KIND_DOUBLES = 2;
+
+    private static final class Record {
+        long mTime;
+        int mLevel;
+        Object mSource;
+        String mPrefix;
+        String mFormat;
+        int mKind;
+        Object mObject1;
+        Object mObject2;
+        double mDouble1;
+        double mDouble2;
+    }
+
+    private final Record[] mRecords;
+    private long mCount;
+
+    /**
+     * @param capacity max number of records kept.
+     */
+    public LogRingBuffer(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        mRecords = new Record[capacity];
+        for (int i = 0; i < capacity; i++) {
+            mRecords[i] = new Record();
+        }
+    }
+
+    public int getCapacity() {
+        return mRecords.length;
+    }
+
+    synchronized void add(final int level, final Object source, final String prefix, final String format,
+                          final int kind, final Object object1, final Object object2,
+                          final double double1, final double double2) {
+        Record record = mRecords[(int) (mCount % mRecords.length)];
+        mCount++;
+        record.mTime = System.currentTimeMillis();
+        record.mLevel = level;
+        record.mSource = source;
+        record.mPrefix = prefix;
+        record.mFormat = format;
+        record.mKind = kind;
+        record.mObject1 = object1;
+        record.mObject2 = object2;
+        record.mDouble1 = double1;
+        record.mDouble2 = double2;
+    }
+
+    public synchronized void clear() {
+        for (Record record : mRecords) {
+            record.mSource = null;
+            record.mObject1 = null;
+            record.mObject2 = null;
+        }
+        mCount = 0;
+    }
+
+    /**
+     * Formats the records from the oldest to the newest, one per line.
+     * @return text of the records.
+     */
+    public synchronized String dump() {
+        StringBuilder result = new StringBuilder();
+        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS", Locale.US);
+        long first = Math.max(0, mCount - mRecords.length);
+        for (long i = first; i < mCount; i++) {
+            Record record = mRecords[(int) (i % mRecords.length)];
+            result.append(timeFormat.format(new Date(record.mTime)))
+                    .append(' ').append(getLevelChar(record.mLevel))
+                    .append(' ').append(getSourceName(record.mSource))
+                    .append(" => ");
+            if (record.mPrefix != null) {
+                result.append(record.mPrefix);
+            }
+            result.append(format(record.mFormat, record.mKind, record.mObject1, record.mObject2,
+                    record.mDouble1, record.mDouble2));
+            result.append('\n');
+        }
+        return result.toString();
+    }
+
+    static String format(final String format, final int kind, final Object object1, final Object object2,
+                         final double double1, final double double2) {
+        switch (kind) {
+            case KIND_OBJECTS:
+                return String.format(format, object1, object2);
+            case KIND_DOUBLES:
+                return String.format(format, double1, double2);
+            default:
+                return format;
+        }
+    }
+
+    /**
+     * @param source class or node.
+     */
+    static String getSourceName(final Object source) {
+        if (source instanceof NodeMain) {
+            return ((NodeMain) source).getDefaultNodeName().toString();
+        }
+        if (source instanceof Class) {
+            return ((Class<?>) source).getName();
+        }
+        return source.getClass().getName();
+    }
+
+    private static char getLevelChar(final int level) {
+        switch (level) {
+            case android.util.Log.VERBOSE:
+                return 'V';
+            case android.util.Log.DEBUG:
+                return 'D';
+            case android.util.Log.INFO:
+                return 'I';
+            case android.util.Log.WARN:
+                return 'W';
+            default:
+                return 'E';
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ru.robotmitya.robocommonlib;
+
+/**
+ * Builds a batch of RoboScript messages that is published and sent to robo_body as one string.
+ * A batch is just the messages written one after another, e.g. "G00FFH0000", which is what
+ * robo_body reads from its stream anyway. So a single message is a batch of one and a receiver
+ * that understands batches understands single messages too.
+ * <p>
+ * The builder can be reused with {@link #clear()}. Not thread-safe.
+ */
+public final class MessageBatch {
+    private final char[] mChars;
+    private int mLength;
+
+    /**
+     * @param capacity max number of messages in the batch.
+     */
+    public MessageBatch(final int capacity) {
+        mChars = new char[capacity * MessageHelper.MESSAGE_LENGTH];
+    }
+
+    /**
+     * Appends a message.
+     * @param identifier message identifier.
+     * @param value signed 2 byte integer value.
+     * @return this batch.
+     * @throws IllegalStateException if the batch is full.
+     */
+    public MessageBatch add(final char identifier, final short value) {
+        if (mLength + MessageHelper.MESSAGE_LENGTH > mChars.length) {
+            throw new IllegalStateException("Message batch is full.");
+        }
+        mLength += MessageCodec.encode(identifier, value, mChars, mLength);
+        return this;
+    }
+
+    /**
+     * @see #add(char, short)
+     */
+    public MessageBatch add(final String identifier, final short value) {
+        return add(MessageHelper.toIdentifierChar(identifier), value);
+    }
+
+    /**
+     * @return number of messages in the batch.
+     */
+    public int size() {
+        return mLength / MessageHelper.MESSAGE_LENGTH;
+    }
+
+    public void clear() {
+        mLength = 0;
+    }
+
+    /**
+     * @return the batch text.
+     */
+    @Override
+    public String toString() {
+        return new String(mChars, 0, mLength);
+    }
+
+    /**
+     * @param batch batch text.
+     * @return number of whole messages in the batch.
+     */
+    public static int count(final String batch) {
+        return batch.length() / MessageHelper.MESSAGE_LENGTH;
+    }
+}
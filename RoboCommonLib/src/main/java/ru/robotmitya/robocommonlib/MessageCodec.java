@@ -0,0 +1,169 @@
+package ru.robotmitya.robocommonlib;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Allocation-free encoder and decoder for RoboScript messages.
+ * A message is one identifier char followed by a 16 bit value written as 4 upper case hex digits,
+ * e.g. "G00C0". This is the same wire format {@link MessageHelper} produces, but messages are
+ * written to and read from byte arrays, char arrays and {@link ByteBuffer}s directly.
+ */
+public final class MessageCodec {
+    private static final byte[] HEX_DIGITS = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
+
+    /**
+     * Maps a char to its hex digit value or -1. Only covers the ASCII range.
+     */
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        for (int i = 0; i < HEX_VALUES.length; i++) {
+            HEX_VALUES[i] = -1;
+        }
+        for (int i = 0; i < 10; i++) {
+            HEX_VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEX_VALUES['A' + i] = (byte) (10 + i);
+            HEX_VALUES['a' + i] = (byte) (10 + i);
+        }
+    }
+
+    private MessageCodec() {
+    }
+
+    /**
+     * @param c char or byte value.
+     * @return true if c is a hex digit in either case.
+     */
+    public static boolean isHexDigit(final int c) {
+        return hexValue(c) >= 0;
+    }
+
+    /**
+     * @param c char or byte value.
+     * @return value of the hex digit or -1 if c is not a hex digit.
+     */
+    public static int hexValue(final int c) {
+        if ((c < 0) || (c >= HEX_VALUES.length)) {
+            return -1;
+        }
+        return HEX_VALUES[c];
+    }
+
+    /**
+     * Writes a message to a byte array.
+     * @param identifier message identifier.
+     * @param value signed 2 byte integer value.
+     * @param destination array to write to.
+     * @param offset position of the identifier in destination.
+     * @return number of bytes written (always {@link MessageHelper#MESSAGE_LENGTH}).
+     */
+    public static int encode(final char identifier, final short value, final byte[] destination, final int offset) {
+        destination[offset] = (byte) identifier;
+        destination[offset + 1] = HEX_DIGITS[(value >> 12) & 0xf];
+        destination[offset + 2] = HEX_DIGITS[(value >> 8) & 0xf];
+        destination[offset + 3] = HEX_DIGITS[(value >> 4) & 0xf];
+        destination[offset + 4] = HEX_DIGITS[value & 0xf];
+        return MessageHelper.MESSAGE_LENGTH;
+    }
+
+    /**
+     * Writes a message to a char array.
+     * @see #encode(char, short, byte[], int)
+     */
+    public static int encode(final char identifier, final short value, final char[] destination, final int offset) {
+        destination[offset] = identifier;
+        destination[offset + 1] = (char) HEX_DIGITS[(value >> 12) & 0xf];
+        destination[offset + 2] = (char) HEX_DIGITS[(value >> 8) & 0xf];
+        destination[offset + 3] = (char) HEX_DIGITS[(value >> 4) & 0xf];
+        destination[offset + 4] = (char) HEX_DIGITS[value & 0xf];
+        return MessageHelper.MESSAGE_LENGTH;
+    }
+
+    /**
+     * Writes a message at the buffer's current position and advances it.
+     * @param identifier message identifier.
+     * @param value signed 2 byte integer value.
+     * @param destination buffer with at least {@link MessageHelper#MESSAGE_LENGTH} bytes remaining.
+     */
+    public static void encode(final char identifier, final short value, final ByteBuffer destination) {
+        destination.put((byte) identifier);
+        destination.put(HEX_DIGITS[(value >> 12) & 0xf]);
+        destination.put(HEX_DIGITS[(value >> 8) & 0xf]);
+        destination.put(HEX_DIGITS[(value >> 4) & 0xf]);
+        destination.put(HEX_DIGITS[value & 0xf]);
+    }
+
+    /**
+     * @param source encoded message.
+     * @param offset position of the message in source.
+     * @return message identifier.
+     */
+    public static char decodeIdentifier(final byte[] source, final int offset) {
+        return (char) (source[offset] & 0xff);
+    }
+
+    /**
+     * Reads the 4 hex digits that follow the identifier.
+     * @param source encoded message.
+     * @param offset position of the message (not the value) in source.
+     * @return message value.
+     * @throws NumberFormatException if any of the value chars is not a hex digit.
+     */
+    public static short decodeValue(final byte[] source, final int offset) {
+        int result = 0;
+        for (int i = 1; i < MessageHelper.MESSAGE_LENGTH; i++) {
+            result = (result << 4) | checkedHexValue(source[offset + i] & 0xff);
+        }
+        return (short) result;
+    }
+
+    /**
+     * Reads a message identifier at the buffer's current position without advancing it.
+     */
+    public static char decodeIdentifier(final ByteBuffer source) {
+        return (char) (source.get(source.position()) & 0xff);
+    }
+
+    /**
+     * Reads a message value at the buffer's current position without advancing it.
+     * @see #decodeValue(byte[], int)
+     */
+    public static short decodeValue(final ByteBuffer source) {
+        int position = source.position();
+        int result = 0;
+        for (int i = 1; i < MessageHelper.MESSAGE_LENGTH; i++) {
+            result = (result << 4) | checkedHexValue(source.get(position + i) & 0xff);
+        }
+        return (short) result;
+    }
+
+    /**
+     * Parses up to 8 hex digits.
+     * @param source text.
+     * @param start index of the first digit.
+     * @param end index after the last digit.
+     * @return parsed value or -1 if the range contains a char that is not a hex digit.
+     */
+    static int parseHex(final CharSequence source, final int start, final int end) {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = hexValue(source.charAt(i));
+            if (digit < 0) {
+                return -1;
+            }
+            result = (result << 4) | digit;
+        }
+        return result;
+    }
+
+    private static int checkedHexValue(final int c) {
+        int result = hexValue(c);
+        if (result < 0) {
+            throw new NumberFormatException("Not a hex digit: " + (char) c);
+        }
+        return result;
+    }
+}
@@ -82,10 +82,33 @@ public final class MessageHelper {
      * @return text message.
      */
     public static String makeMessage(final String messageIdentifier, final short messageValue) {
-        String identifier = correctLength(messageIdentifier, MESSAGE_IDENTIFIER_LENGTH, IDENTIFIER_PREFIX);
-        String hexValue = Integer.toHexString(messageValue).toUpperCase();
-        hexValue = MessageHelper.correctLength(hexValue, MESSAGE_VALUE_LENGTH, VALUE_PREFIX);
-        return identifier.concat(hexValue);
+        return makeMessage(toIdentifierChar(messageIdentifier), messageValue);
+    }
+
+    /**
+     * Building message from identifier char and integer value.
+     * Use {@link MessageCodec} directly to avoid creating the string.
+     * @param messageIdentifier message identifier char.
+     * @param messageValue signed 2 byte integer value.
+     * @return text message.
+     */
+    public static String makeMessage(final char messageIdentifier, final short messageValue) {
+        char[] message = new char[MESSAGE_LENGTH];
+        MessageCodec.encode(messageIdentifier, messageValue, message, 0);
+        return new String(message);
+    }
+
+    /**
+     * Same as {@link #correctLength} with identifier length, but returns a char.
+     * @param messageIdentifier message identifier.
+     * @return the last char of the identifier or the identifier prefix if it is empty.
+     */
+    public static char toIdentifierChar(final String messageIdentifier) {
+        int length = messageIdentifier.length();
+        if (length == 0) {
+            return IDENTIFIER_PREFIX;
+        }
+        return messageIdentifier.charAt(length - 1);
     }
 
     /**
@@ -100,6 +123,18 @@ public final class MessageHelper {
         return result;
     }
 
+    /**
+     * Extracting message identifier char without creating a string.
+     * @param message text message.
+     * @return message identifier.
+     */
+    public static char getMessageIdentifierChar(final String message) {
+        if (message.length() == 0) {
+            return IDENTIFIER_PREFIX;
+        }
+        return message.charAt(0);
+    }
+
     /**
      * Извлечение значения из сообщения.
      * @param message сообщение.
@@ -120,6 +155,14 @@ public final class MessageHelper {
     }
 
     public static int getMessageIntegerValue(final String message) {
+        // Well-formed messages are parsed in place.
+        if (message.length() == MESSAGE_LENGTH) {
+            int value = MessageCodec.parseHex(message, MESSAGE_IDENTIFIER_LENGTH, MESSAGE_LENGTH);
+            if (value >= 0) {
+                return value;
+            }
+        }
+
         String textValue = MessageHelper.getMessageStringValue(message);
         if (textValue.isEmpty()) {
             return 0;
@@ -151,10 +194,7 @@ public final class MessageHelper {
     public static int getFirstMessagePosition(final String messages) {
         int result = -1;
         for (int i = 0; i < messages.length(); i++) {
-            char c = messages.charAt(i);
-            if (((c >= '0') && (c <= '9'))
-                    || ((c >= 'A') && (c <= 'F'))
-                    || ((c >= 'a') && (c <= 'f'))) {
+            if (MessageCodec.isHexDigit(messages.charAt(i))) {
                 continue;
             }
             result = i;
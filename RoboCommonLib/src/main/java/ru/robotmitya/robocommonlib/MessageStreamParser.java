@@ -0,0 +1,139 @@
+package ru.robotmitya.robocommonlib;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Incremental parser for a stream of RoboScript messages (see {@link MessageCodec}).
+ * Bytes can be fed in chunks of any size, a message split between two chunks is completed by the
+ * next one. The parser doesn't create strings or other objects per message.
+ * <p>
+ * Some bytes of the stream can be lost. Hex digits that don't follow an identifier are skipped.
+ * If a non-hex char appears where a value digit is expected, the broken message is dropped and
+ * the char is taken as the identifier of the next message.
+ * <p>
+ * Not thread-safe. Is meant to be used by a single reader thread.
+ */
+public final class MessageStreamParser {
+    /**
+     * Receives parsed messages.
+     */
+    public interface Listener {
+        void onMessage(char identifier, short value);
+    }
+
+    private static final int DEFAULT_BUFFER_SIZE = 256;
+
+    private static final int NO_IDENTIFIER = -1;
+
+    private final byte[] mBuffer;
+
+    // Message that is being parsed.
+    private int mIdentifier = NO_IDENTIFIER;
+    private int mDigitCount;
+    private int mValue;
+
+    private long mMessageCount;
+    private long mBrokenMessageCount;
+    private long mSkippedByteCount;
+
+    public MessageStreamParser() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize max number of bytes taken from the stream by one {@link #read} call.
+     */
+    public MessageStreamParser(final int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive.");
+        }
+        mBuffer = new byte[bufferSize];
+    }
+
+    /**
+     * Reads the next chunk of the stream and parses it. Blocks if the stream does.
+     * @param inputStream stream to read from.
+     * @param listener receives every message completed by this chunk.
+     * @return number of bytes read or -1 if the end of the stream is reached.
+     * @throws IOException if the stream fails.
+     */
+    public int read(final InputStream inputStream, final Listener listener) throws IOException {
+        int byteCount = inputStream.read(mBuffer, 0, mBuffer.length);
+        if (byteCount > 0) {
+            parse(mBuffer, 0, byteCount, listener);
+        }
+        return byteCount;
+    }
+
+    /**
+     * Parses the next chunk of the stream.
+     * @param data bytes of the stream.
+     * @param offset position of the chunk in data.
+     * @param length length of the chunk.
+     * @param listener receives every message completed by this chunk.
+     */
+    public void parse(final byte[] data, final int offset, final int length, final Listener listener) {
+        final int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            int c = data[i] & 0xff;
+            int digit = MessageCodec.hexValue(c);
+            if (mIdentifier == NO_IDENTIFIER) {
+                if (digit >= 0) {
+                    mSkippedByteCount++;
+                } else {
+                    startMessage(c);
+                }
+            } else if (digit < 0) {
+                // Some digits of the current message are lost, so c starts the next one.
+                mBrokenMessageCount++;
+                mSkippedByteCount += 1 + mDigitCount;
+                startMessage(c);
+            } else {
+                mValue = (mValue << 4) | digit;
+                mDigitCount++;
+                if (mDigitCount == MessageHelper.MESSAGE_VALUE_LENGTH) {
+                    char identifier = (char) mIdentifier;
+                    short value = (short) mValue;
+                    mIdentifier = NO_IDENTIFIER;
+                    mMessageCount++;
+                    listener.onMessage(identifier, value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops a partially parsed message, e.g. after reconnecting.
+     */
+    public void reset() {
+        mIdentifier = NO_IDENTIFIER;
+    }
+
+    /**
+     * @return number of complete messages parsed.
+     */
+    public long getMessageCount() {
+        return mMessageCount;
+    }
+
+    /**
+     * @return number of messages dropped because some of their digits were lost.
+     */
+    public long getBrokenMessageCount() {
+        return mBrokenMessageCount;
+    }
+
+    /**
+     * @return number of bytes that didn't belong to any complete message.
+     */
+    public long getSkippedByteCount() {
+        return mSkippedByteCount;
+    }
+
+    private void startMessage(final int identifier) {
+        mIdentifier = identifier;
+        mDigitCount = 0;
+        mValue = 0;
+    }
+}
@@ -0,0 +1,63 @@
+package ru.robotmitya.robocommonlib;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of {@link TopicMetrics} of this process. Nodes look their topics up once on start and
+ * mark messages on them, {@link MetricsNode} reports all of them periodically.
+ */
+public final class Metrics {
+    private static final ConcurrentMap<String, TopicMetrics> TOPICS = new ConcurrentHashMap<String, TopicMetrics>();
+
+    private Metrics() { }
+
+    /**
+     * @param name topic name, or any other name of a message channel like the Bluetooth link.
+     * @return metrics of the topic. Created on the first call.
+     */
+    public static TopicMetrics getTopic(final String name) {
+        TopicMetrics topic = TOPICS.get(name);
+        if (topic == null) {
+            TopicMetrics newTopic = new TopicMetrics(name);
+            topic = TOPICS.putIfAbsent(name, newTopic);
+            if (topic == null) {
+                topic = newTopic;
+            }
+        }
+        return topic;
+    }
+
+    /**
+     * Builds a report with one line per topic sorted by name. Rates and latencies in the report are
+     * measured since the previous report.
+     */
+    public static String report() {
+        List<TopicMetrics> topics = new ArrayList<TopicMetrics>(TOPICS.values());
+        Collections.sort(topics, new Comparator<TopicMetrics>() {
+            @Override
+            public int compare(final TopicMetrics lhs, final TopicMetrics rhs) {
+                return lhs.getName().compareTo(rhs.getName());
+            }
+        });
+        StringBuilder builder = new StringBuilder();
+        for (TopicMetrics topic : topics) {
+            if (builder.length() > 0) {
+                builder.append('\n');
+            }
+            topic.report(builder);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Forgets all topics. Topics that nodes already hold are not reported any more.
+     */
+    static void clear() {
+        TOPICS.clear();
+    }
+}
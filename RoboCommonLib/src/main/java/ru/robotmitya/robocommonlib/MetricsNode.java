@@ -0,0 +1,77 @@
+package ru.robotmitya.robocommonlib;
+
+import org.ros.namespace.GraphName;
+import org.ros.node.ConnectedNode;
+import org.ros.node.Node;
+import org.ros.node.NodeMain;
+import org.ros.node.topic.Publisher;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically publishes {@link Metrics#report()} of this process to
+ * {@link AppConst.Common#STATS_TOPIC}. Each app runs its own node with its own name.
+ */
+public class MetricsNode implements NodeMain {
+    public static final long DEFAULT_PERIOD_MS = 10000;
+
+    private final String mNodeName;
+    private final long mPeriod;
+
+    private Publisher<std_msgs.String> mStatsPublisher;
+    private ScheduledFuture<?> mReportFuture;
+
+    public MetricsNode(final String nodeName) {
+        this(nodeName, DEFAULT_PERIOD_MS);
+    }
+
+    /**
+     * @param nodeName unique name of the node.
+     * @param period report period in ms.
+     */
+    public MetricsNode(final String nodeName, final long period) {
+        mNodeName = nodeName;
+        mPeriod = period;
+    }
+
+    @Override
+    public GraphName getDefaultNodeName() {
+        return GraphName.of(mNodeName);
+    }
+
+    @Override
+    public void onStart(final ConnectedNode connectedNode) {
+        mStatsPublisher = connectedNode.newPublisher(AppConst.Common.STATS_TOPIC, std_msgs.String._TYPE);
+        mReportFuture = connectedNode.getScheduledExecutorService().scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                publishReport();
+            }
+        }, mPeriod, mPeriod, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onShutdown(final Node node) {
+        if (mReportFuture != null) {
+            mReportFuture.cancel(false);
+            mReportFuture = null;
+        }
+    }
+
+    @Override
+    public void onShutdownComplete(final Node node) {
+    }
+
+    @Override
+    public void onError(final Node node, final Throwable throwable) {
+    }
+
+    private void publishReport() {
+        String report = mNodeName + '\n' + Metrics.report();
+        std_msgs.String message = mStatsPublisher.newMessage();
+        message.setData(report);
+        mStatsPublisher.publish(message);
+        Log.d(this, report);
+    }
+}
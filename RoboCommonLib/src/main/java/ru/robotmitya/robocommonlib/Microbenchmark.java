@@ -0,0 +1,106 @@
+package ru.robotmitya.robocommonlib;
+
+import android.os.Bundle;
+
+import java.util.Arrays;
+
+/**
+ * Measures how long a short piece of code takes per call.
+ * <p>
+ * The task is run once for warmup so the JIT compiles it, then for a number of rounds. The fastest and
+ * the median round are reported, the median being the number to compare. Used by the benchmarks in the
+ * modules' src/benchmark source sets, which only run with {@code -Pbenchmark}.
+ */
+public final class Microbenchmark {
+    public interface Task {
+        /**
+         * Runs the measured code.
+         * @param iterations number of times to run it.
+         * @return any value that depends on all the work done, so the JIT can't drop the work.
+         */
+        long run(int iterations);
+    }
+
+    public static final class Result {
+        private final String mName;
+        private final double mMinNanos;
+        private final double mMedianNanos;
+
+        Result(final String name, final double minNanos, final double medianNanos) {
+            mName = name;
+            mMinNanos = minNanos;
+            mMedianNanos = medianNanos;
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * @return time per iteration of the fastest round in ns.
+         */
+        public double getMinNanos() {
+            return mMinNanos;
+        }
+
+        /**
+         * @return median time per iteration of all rounds in ns.
+         */
+        public double getMedianNanos() {
+            return mMedianNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %.1f ns/op (min %.1f ns/op)", mName, mMedianNanos, mMinNanos);
+        }
+    }
+
+    private final int mIterations;
+    private final int mRounds;
+    private long mSink;
+
+    /**
+     * @param iterations number of iterations per round.
+     * @param rounds number of measured rounds.
+     */
+    public Microbenchmark(final int iterations, final int rounds) {
+        if ((iterations <= 0) || (rounds <= 0)) {
+            throw new IllegalArgumentException("Iterations and rounds must be positive");
+        }
+        mIterations = iterations;
+        mRounds = rounds;
+    }
+
+    public Result measure(final String name, final Task task) {
+        mSink += task.run(mIterations);
+        double[] nanos = new double[mRounds];
+        for (int i = 0; i < mRounds; i++) {
+            long start = System.nanoTime();
+            mSink += task.run(mIterations);
+            nanos[i] = (double) (System.nanoTime() - start) / mIterations;
+        }
+        Arrays.sort(nanos);
+        return new Result(name, nanos[0], nanos[mRounds / 2]);
+    }
+
+    /**
+     * @return sum of the values returned by the tasks.
+     */
+    public long getSink() {
+        return mSink;
+    }
+
+    /**
+     * Puts the median times into a bundle, e.g. for {@link android.app.Instrumentation#sendStatus}.
+     * @param results results to put.
+     * @return bundle with a ns/op value per result name.
+     */
+    public static Bundle toBundle(final Result... results) {
+        Bundle bundle = new Bundle();
+        for (Result result : results) {
+            bundle.putDouble(result.getName(), result.getMedianNanos());
+        }
+        return bundle;
+    }
+}
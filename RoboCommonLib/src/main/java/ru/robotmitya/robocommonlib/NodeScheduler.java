@@ -0,0 +1,130 @@
+package ru.robotmitya.robocommonlib;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodic and delayed tasks of a node, run by a shared executor instead of a {@link java.util.Timer}
+ * or thread per task. Pass the executor of the node ({@code ConnectedNode.getScheduledExecutorService()}),
+ * which all nodes of a {@code NodeMainExecutor} share, and call {@link #cancelAll()} on node shutdown.
+ * <p>
+ * An exception thrown by a task is logged. Unlike with a bare executor it doesn't stop the following
+ * runs of a periodic task.
+ */
+public final class NodeScheduler {
+    private final ScheduledExecutorService mExecutorService;
+    private final Set<Future<?>> mFutures =
+            Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<Future<?>, Boolean>()));
+    private volatile boolean mCancelled;
+
+    public NodeScheduler(final ScheduledExecutorService executorService) {
+        mExecutorService = executorService;
+    }
+
+    /**
+     * @param task task to run once.
+     * @param delay delay in ms.
+     * @return future to cancel the task with.
+     */
+    public ScheduledFuture<?> schedule(final Runnable task, final long delay) {
+        final TrackedTask trackedTask = new TrackedTask(task, true);
+        return trackedTask.track(mExecutorService.schedule(trackedTask, delay, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * @param task task to run periodically until cancelled.
+     * @param initialDelay delay of the first run in ms.
+     * @param period period in ms.
+     * @return future to cancel the task with.
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(final Runnable task, final long initialDelay, final long period) {
+        final TrackedTask trackedTask = new TrackedTask(task, false);
+        return trackedTask.track(
+                mExecutorService.scheduleAtFixedRate(trackedTask, initialDelay, period, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Cancels all tasks scheduled by this scheduler. Tasks scheduled afterwards are cancelled right away.
+     */
+    public void cancelAll() {
+        mCancelled = true;
+        synchronized (mFutures) {
+            for (Future<?> future : mFutures) {
+                future.cancel(false);
+            }
+            mFutures.clear();
+        }
+    }
+
+    /**
+     * @return number of tasks that are scheduled and not finished or cancelled yet.
+     */
+    public int getTaskCount() {
+        removeDone();
+        return mFutures.size();
+    }
+
+    /**
+     * Forgets tasks that were cancelled through their futures.
+     */
+    private void removeDone() {
+        synchronized (mFutures) {
+            Iterator<Future<?>> iterator = mFutures.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().isDone()) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private final class TrackedTask implements Runnable {
+        private final Runnable mTask;
+        private final boolean mOneShot;
+        private ScheduledFuture<?> mFuture;
+        private boolean mFinished;
+
+        private TrackedTask(final Runnable task, final boolean oneShot) {
+            mTask = task;
+            mOneShot = oneShot;
+        }
+
+        private synchronized ScheduledFuture<?> track(final ScheduledFuture<?> future) {
+            // A one-shot task with a short delay can finish before it is tracked.
+            if (!mFinished) {
+                removeDone();
+                mFuture = future;
+                mFutures.add(future);
+            }
+            if (mCancelled) {
+                future.cancel(false);
+                mFutures.remove(future);
+            }
+            return future;
+        }
+
+        @Override
+        public void run() {
+            try {
+                mTask.run();
+            } catch (RuntimeException e) {
+                Log.e(mTask, "scheduled task failed: " + e);
+            } finally {
+                if (mOneShot) {
+                    synchronized (this) {
+                        mFinished = true;
+                        if (mFuture != null) {
+                            mFutures.remove(mFuture);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
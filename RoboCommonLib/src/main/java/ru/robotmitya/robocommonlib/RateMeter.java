@@ -0,0 +1,42 @@
+package ru.robotmitya.robocommonlib;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts events and measures their rate between two reads.
+ * Events can be marked from any thread, the rate is meant to be read by a single reporting thread.
+ */
+public final class RateMeter {
+    private final AtomicLong mCount = new AtomicLong();
+    private long mLastCount;
+    private long mLastTime = System.nanoTime();
+
+    public void mark() {
+        mCount.incrementAndGet();
+    }
+
+    /**
+     * @return number of events since the meter was created.
+     */
+    public long getCount() {
+        return mCount.get();
+    }
+
+    /**
+     * Measures the rate since the previous call (or since the meter was created).
+     * @return events per second.
+     */
+    public double getRate() {
+        return getRate(System.nanoTime());
+    }
+
+    synchronized double getRate(final long nowNanos) {
+        long count = mCount.get();
+        long elapsed = nowNanos - mLastTime;
+        double result = elapsed <= 0 ? 0 : (double) (count - mLastCount) * TimeUnit.SECONDS.toNanos(1) / elapsed;
+        mLastCount = count;
+        mLastTime = nowNanos;
+        return result;
+    }
+}
@@ -2,21 +2,97 @@ package ru.robotmitya.robocommonlib;
 
 import com.badlogic.gdx.math.MathUtils;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * Created by dmitrydzz on 3/23/14.
- *
+ * <p>
+ * State of the robot. Can be read and changed from any thread without locks: the changeable values
+ * live in an immutable {@link Snapshot} that is replaced atomically on every change.
  */
 public class RoboState {
-    private static short mHeadlights;
+    /**
+     * Receives state changes.
+     */
+    public interface Listener {
+        /**
+         * Called on the thread that changed the state, after the change. Must not block.
+         * @param previous state before the change.
+         * @param current state after the change.
+         */
+        void onStateChanged(Snapshot previous, Snapshot current);
+    }
+
+    /**
+     * Immutable copy of the whole state. Each change creates a new snapshot with the next version,
+     * so values read from one snapshot are always consistent with each other.
+     */
+    public static final class Snapshot {
+        private static final int HEADLIGHTS = 0;
+        private static final int SELECTED_CAM_INDEX = 1;
+        private static final int MAIN_ACCUMULATOR_CHARGING = 2;
+        private static final int ROBOHEAD_ACCUMULATOR_CHARGING = 3;
+        private static final int ROBOHEAD_BATTERY_STATE = 4;
+        private static final int MOOD = 5;
+        private static final int FIELD_COUNT = 6;
+
+        private final long mVersion;
+        private final short[] mValues;
+
+        private Snapshot(final long version, final short[] values) {
+            mVersion = version;
+            mValues = values;
+        }
+
+        private Snapshot with(final int field, final short value) {
+            short[] values = mValues.clone();
+            values[field] = value;
+            return new Snapshot(mVersion + 1, values);
+        }
 
-    private static short mSelectedCamIndex;
+        /**
+         * @return number of changes made before this snapshot.
+         */
+        public long getVersion() {
+            return mVersion;
+        }
+
+        public short getHeadlights() {
+            return mValues[HEADLIGHTS];
+        }
 
-    private static boolean mIsReverse;
+        public short getSelectedCamIndex() {
+            return mValues[SELECTED_CAM_INDEX];
+        }
 
-    private static short mMainAccumulatorCharging;
-    private static short mRoboHeadAccumulatorCharging;
+        public boolean getIsReverse() {
+            return mValues[SELECTED_CAM_INDEX] == AppConst.Common.Camera.BACK;
+        }
 
-    private static short mRoboHeadBatteryState;
+        public short getMainAccumulatorCharging() {
+            return mValues[MAIN_ACCUMULATOR_CHARGING];
+        }
+
+        public short getRoboHeadAccumulatorCharging() {
+            return mValues[ROBOHEAD_ACCUMULATOR_CHARGING];
+        }
+
+        public short getRoboHeadBatteryState() {
+            return mValues[ROBOHEAD_BATTERY_STATE];
+        }
+
+        public short getMood() {
+            return mValues[MOOD];
+        }
+    }
+
+    private static final Snapshot INITIAL_STATE;
+
+    private static final AtomicReference<Snapshot> STATE;
+
+    private static final List<Listener> LISTENERS = new CopyOnWriteArrayList<Listener>();
 
     private final static short mHeadHorizontalServoMinDegree = 0;
     private final static short mHeadHorizontalServoMaxDegree = 180;
@@ -28,123 +104,141 @@ public class RoboState {
     private final static float mHeadVerticalServoMinRad = mHeadVerticalServoMinDegree * MathUtils.degreesToRadians;
     private final static float mHeadVerticalServoMaxRad = mHeadVerticalServoMaxDegree * MathUtils.degreesToRadians;
 
-    private static short mMood;
-
     private static double mHorizontalZeroOrientation;
     private static double mVerticalZeroOrientation;
 
     static {
-        mHeadlights = Rs.Instruction.HEADLIGHTS_OFF;
+        short[] values = new short[Snapshot.FIELD_COUNT];
+        values[Snapshot.HEADLIGHTS] = Rs.Instruction.HEADLIGHTS_OFF;
+        values[Snapshot.SELECTED_CAM_INDEX] = -1;
+        values[Snapshot.MAIN_ACCUMULATOR_CHARGING] = Rs.Instruction.ACCUMULATOR_MAIN_CHARGING_STOP;
+        values[Snapshot.ROBOHEAD_ACCUMULATOR_CHARGING] = Rs.Instruction.ACCUMULATOR_ROBOHEAD_CHARGING_STOP;
+        values[Snapshot.ROBOHEAD_BATTERY_STATE] = Rs.BatteryResponse.ROBOHEAD_BATTERY;
+        values[Snapshot.MOOD] = Rs.Mood.FACE_OK;
+        INITIAL_STATE = new Snapshot(0, values);
+        STATE = new AtomicReference<Snapshot>(INITIAL_STATE);
 
-        mSelectedCamIndex = -1;
+        double horizontalZeroOrientationInRadians = 0.0;
+        mHorizontalZeroOrientation = horizontalZeroOrientationInRadians * 1.0 / Math.PI;
+        double verticalZeroOrientationInRadians = Math.PI / 2.0;
+        mVerticalZeroOrientation = verticalZeroOrientationInRadians * 1.0 / Math.PI;
+    }
 
-        mIsReverse = false;
 
-        mMainAccumulatorCharging = Rs.Instruction.ACCUMULATOR_MAIN_CHARGING_STOP;
-        mRoboHeadAccumulatorCharging = Rs.Instruction.ACCUMULATOR_ROBOHEAD_CHARGING_STOP;
+    // Snapshots and listeners
 
-        mRoboHeadBatteryState = Rs.BatteryResponse.ROBOHEAD_BATTERY;
+    /**
+     * @return current state. Use it to read several values that must be consistent with each other.
+     */
+    public static Snapshot getSnapshot() {
+        return STATE.get();
+    }
 
-        mMood = Rs.Mood.FACE_OK;
+    public static void addListener(final Listener listener) {
+        LISTENERS.add(listener);
+    }
 
-        double horizontalZeroOrientationInRadians = 0.0;
-        mHorizontalZeroOrientation = horizontalZeroOrientationInRadians * 1.0 / Math.PI;
-        double verticalZeroOrientationInRadians = Math.PI / 2.0;
-        mVerticalZeroOrientation = verticalZeroOrientationInRadians * 1.0 / Math.PI;
+    public static void removeListener(final Listener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Sets a value with compare-and-set, so concurrent changes of different values are not lost.
+     * @return true if the value has changed.
+     */
+    private static boolean set(final int field, final short value) {
+        Snapshot previous;
+        Snapshot current;
+        do {
+            previous = STATE.get();
+            if (previous.mValues[field] == value) {
+                return false;
+            }
+            current = previous.with(field, value);
+        } while (!STATE.compareAndSet(previous, current));
+        for (Listener listener : LISTENERS) {
+            listener.onStateChanged(previous, current);
+        }
+        return true;
+    }
+
+    /**
+     * Brings back the initial values without notifying listeners. For tests.
+     */
+    static void reset() {
+        STATE.set(INITIAL_STATE);
     }
 
 
     // Headlights
 
     public static boolean setHeadlights(final short value) {
-        if (value != mHeadlights) {
-            mHeadlights = value;
-            return true;
-        }
-        return false;
+        return set(Snapshot.HEADLIGHTS, value);
     }
 
     public static short getHeadlights() {
-        return mHeadlights;
+        return STATE.get().getHeadlights();
     }
 
 
     // Selected camera index
 
+    /**
+     * Selecting the back camera also turns reverse on.
+     */
     public static boolean setSelectedCamIndex(final short value) {
-        if (value != mSelectedCamIndex) {
-            mSelectedCamIndex = value;
-            mIsReverse = mSelectedCamIndex == AppConst.Common.Camera.BACK;
-            return true;
-        }
-        return false;
+        return set(Snapshot.SELECTED_CAM_INDEX, value);
     }
 
     public static short getSelectedCamIndex() {
-        return mSelectedCamIndex;
+        return STATE.get().getSelectedCamIndex();
     }
 
     public static boolean getIsReverse() {
-        return mIsReverse;
+        return STATE.get().getIsReverse();
     }
 
 
     // Main accumulator charge
 
     public static boolean setMainAccumulatorCharging(final short value) {
-        if (value != mMainAccumulatorCharging) {
-            mMainAccumulatorCharging = value;
-            return true;
-        }
-        return false;
+        return set(Snapshot.MAIN_ACCUMULATOR_CHARGING, value);
     }
 
     public static short getMainAccumulatorCharging() {
-        return mMainAccumulatorCharging;
+        return STATE.get().getMainAccumulatorCharging();
     }
 
 
     // Phone accumulator charge
 
     public static boolean setRoboHeadAccumulatorCharging(final short value) {
-        if (value != mRoboHeadAccumulatorCharging) {
-            mRoboHeadAccumulatorCharging = value;
-            return true;
-        }
-        return false;
+        return set(Snapshot.ROBOHEAD_ACCUMULATOR_CHARGING, value);
     }
 
     public static short getRoboHeadAccumulatorCharging() {
-        return mRoboHeadAccumulatorCharging;
+        return STATE.get().getRoboHeadAccumulatorCharging();
     }
 
 
     // RoboHead battery state for ~2XYY response
 
     public static boolean setRoboHeadBatteryState(final short value) {
-        if (value != mRoboHeadBatteryState) {
-            mRoboHeadBatteryState = value;
-            return true;
-        }
-        return false;
+        return set(Snapshot.ROBOHEAD_BATTERY_STATE, value);
     }
 
     public static short getRoboHeadBatteryState() {
-        return mRoboHeadBatteryState;
+        return STATE.get().getRoboHeadBatteryState();
     }
 
     // Mood
 
     public static boolean setMood(final short value) {
-        if (value != mMood) {
-            mMood = value;
-            return true;
-        }
-        return false;
+        return set(Snapshot.MOOD, value);
     }
 
     public static short getMood() {
-        return mMood;
+        return STATE.get().getMood();
     }
 
     public static short getHeadHorizontalServoMinDegree() {
@@ -0,0 +1,75 @@
+package ru.robotmitya.robocommonlib;
+
+import java.util.Locale;
+
+/**
+ * Message rates and handling latency of a topic in this process.
+ * <p>
+ * A node marks each message it receives with {@link #onReceived()} and each message it publishes
+ * with {@link #onPublished()}. If a message is published in response to a received one, passing the
+ * receive time to {@link #onPublished(long)} records how long the node took to handle it.
+ */
+public final class TopicMetrics {
+    private final String mName;
+    private final RateMeter mReceived = new RateMeter();
+    private final RateMeter mPublished = new RateMeter();
+    private final LatencyHistogram mLatency = new LatencyHistogram();
+
+    TopicMetrics(final String name) {
+        mName = name;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * @return receive time to pass to {@link #onPublished(long)} of the topic the response goes to.
+     */
+    public long onReceived() {
+        mReceived.mark();
+        return System.nanoTime();
+    }
+
+    public void onPublished() {
+        mPublished.mark();
+    }
+
+    /**
+     * @param receivedNanos value returned by {@link #onReceived()} for the message that caused this one.
+     */
+    public void onPublished(final long receivedNanos) {
+        mPublished.mark();
+        mLatency.recordSince(receivedNanos);
+    }
+
+    public RateMeter getReceived() {
+        return mReceived;
+    }
+
+    public RateMeter getPublished() {
+        return mPublished;
+    }
+
+    /**
+     * @return latencies in microseconds between receiving a message and publishing the response.
+     */
+    public LatencyHistogram getLatency() {
+        return mLatency;
+    }
+
+    /**
+     * Appends a line like "robot_mitya/body: in 10.0/s, out 20.0/s, latency us p50=120 p99=800
+     * max=1500 n=200" and starts the next interval of rate and latency measurement.
+     */
+    void report(final StringBuilder builder) {
+        builder.append(mName).append(String.format(Locale.US, ": in %.1f/s, out %.1f/s",
+                mReceived.getRate(), mPublished.getRate()));
+        long count = mLatency.getCount();
+        if (count > 0) {
+            builder.append(String.format(Locale.US, ", latency us p50=%d p99=%d max=%d n=%d",
+                    mLatency.getPercentile(50), mLatency.getPercentile(99), mLatency.getMax(), count));
+            mLatency.reset();
+        }
+    }
+}
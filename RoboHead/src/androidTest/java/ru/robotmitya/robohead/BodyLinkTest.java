@@ -0,0 +1,266 @@
+package ru.robotmitya.robohead;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import ru.robotmitya.robocommonlib.MessageHelper;
+
+/**
+ * Runs {@link BodyLink} over an in-memory transport.
+ */
+public class BodyLinkTest extends TestCase {
+    private static final long TIMEOUT_MS = 5000;
+
+    /**
+     * Fails the first connects, then connects to a pipe that the test writes to.
+     */
+    private static class MemoryTransport implements BodyTransport {
+        private final ByteArrayOutputStream mWritten = new ByteArrayOutputStream();
+        private int mFailuresLeft;
+        private int mConnectCount;
+        private PipedInputStream mInputStream;
+        private PipedOutputStream mBodyOutputStream;
+
+        private final OutputStream mOutputStream = new OutputStream() {
+            @Override
+            public void write(final int oneByte) {
+                synchronized (mWritten) {
+                    mWritten.write(oneByte);
+                    mWritten.notifyAll();
+                }
+            }
+        };
+
+        MemoryTransport(final int failures) {
+            mFailuresLeft = failures;
+        }
+
+        @Override
+        public synchronized void connect() throws IOException {
+            mConnectCount++;
+            if (mFailuresLeft > 0) {
+                mFailuresLeft--;
+                throw new IOException("unreachable");
+            }
+            mInputStream = new PipedInputStream();
+            mBodyOutputStream = new PipedOutputStream(mInputStream);
+        }
+
+        @Override
+        public synchronized InputStream getInputStream() {
+            return mInputStream;
+        }
+
+        @Override
+        public synchronized OutputStream getOutputStream() {
+            return mOutputStream;
+        }
+
+        @Override
+        public synchronized void close() {
+            try {
+                if (mBodyOutputStream != null) {
+                    mBodyOutputStream.close();
+                    mBodyOutputStream = null;
+                }
+            } catch (IOException e) {
+                // Ignore.
+            }
+        }
+
+        synchronized void sendFromBody(final String text) throws IOException {
+            mBodyOutputStream.write(text.getBytes());
+            mBodyOutputStream.flush();
+        }
+
+        synchronized int getConnectCount() {
+            return mConnectCount;
+        }
+
+        String awaitWritten(final int length) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+            synchronized (mWritten) {
+                while (mWritten.size() < length && System.currentTimeMillis() < deadline) {
+                    mWritten.wait(100);
+                }
+                return mWritten.toString();
+            }
+        }
+    }
+
+    /**
+     * Connects only after {@link #release()}, like a Bluetooth socket that can't be interrupted.
+     */
+    private static class SlowTransport extends MemoryTransport {
+        private final CountDownLatch mConnectStarted = new CountDownLatch(1);
+        private final CountDownLatch mRelease = new CountDownLatch(1);
+        private boolean mOpen;
+
+        SlowTransport() {
+            super(0);
+        }
+
+        @Override
+        public void connect() throws IOException {
+            mConnectStarted.countDown();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    mRelease.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            super.connect();
+            synchronized (this) {
+                mOpen = true;
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            super.close();
+            mOpen = false;
+        }
+
+        synchronized boolean isOpen() {
+            return mOpen;
+        }
+
+        boolean awaitConnectStarted() throws InterruptedException {
+            return mConnectStarted.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        }
+
+        void release() {
+            mRelease.countDown();
+        }
+    }
+
+    private static class QueueListener implements BodyLink.Listener {
+        final BlockingQueue<String> mEvents = new LinkedBlockingQueue<String>();
+
+        @Override
+        public void onConnected() {
+            mEvents.add("connected");
+        }
+
+        @Override
+        public void onMessage(final char identifier, final short value) {
+            mEvents.add(MessageHelper.makeMessage(identifier, value));
+        }
+
+        @Override
+        public void onDisconnected() {
+            mEvents.add("disconnected");
+        }
+
+        @Override
+        public void onSendError(final byte[] data, final IOException e) {
+            mEvents.add("error");
+        }
+
+        String next() throws InterruptedException {
+            return mEvents.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Test
+    public void testReconnectsAfterFailures() throws InterruptedException {
+        MemoryTransport transport = new MemoryTransport(3);
+        QueueListener listener = new QueueListener();
+        BodyLink bodyLink = new BodyLink(transport, listener, new ConflatingCommandQueue(), 10, 40);
+        ExecutorService executorService = Executors.newCachedThreadPool();
+        bodyLink.start(executorService);
+
+        assertEquals("connected", listener.next());
+        assertEquals(4, transport.getConnectCount());
+        assertTrue(bodyLink.isConnected());
+
+        bodyLink.stop();
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testReceivesAndSends() throws Exception {
+        MemoryTransport transport = new MemoryTransport(0);
+        QueueListener listener = new QueueListener();
+        BodyLink bodyLink = new BodyLink(transport, listener, new ConflatingCommandQueue(), 10, 40);
+        ExecutorService executorService = Executors.newCachedThreadPool();
+        bodyLink.start(executorService);
+        assertEquals("connected", listener.next());
+
+        transport.sendFromBody("V0123L0");
+        transport.sendFromBody("012");
+        assertEquals("V0123", listener.next());
+        assertEquals("L0012", listener.next());
+
+        assertTrue(bodyLink.send("G00C0".getBytes()));
+        assertTrue(bodyLink.send("GFF40".getBytes()));
+        assertEquals("G00C0GFF40", transport.awaitWritten(10));
+
+        bodyLink.stop();
+        assertFalse(bodyLink.isConnected());
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testReconnectsWhenStreamEnds() throws Exception {
+        MemoryTransport transport = new MemoryTransport(0);
+        QueueListener listener = new QueueListener();
+        BodyLink bodyLink = new BodyLink(transport, listener, new ConflatingCommandQueue(), 10, 40);
+        ExecutorService executorService = Executors.newCachedThreadPool();
+        bodyLink.start(executorService);
+        assertEquals("connected", listener.next());
+
+        transport.close();
+        assertEquals("disconnected", listener.next());
+        assertEquals("connected", listener.next());
+        assertEquals(1, bodyLink.getReconnectCount());
+
+        bodyLink.stop();
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testStopWhileConnecting() throws Exception {
+        SlowTransport transport = new SlowTransport();
+        QueueListener listener = new QueueListener();
+        BodyLink bodyLink = new BodyLink(transport, listener, new ConflatingCommandQueue(), 10, 40);
+        ExecutorService executorService = Executors.newCachedThreadPool();
+        bodyLink.start(executorService);
+        assertTrue(transport.awaitConnectStarted());
+
+        bodyLink.stop();
+        transport.release();
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+        assertFalse(transport.isOpen());
+        assertFalse(bodyLink.isConnected());
+        assertTrue(listener.mEvents.isEmpty());
+    }
+
+    @Test
+    public void testSendWhileDisconnectedIsDropped() {
+        BodyLink bodyLink = new BodyLink(new MemoryTransport(0), new QueueListener());
+        assertFalse(bodyLink.send("G0000".getBytes()));
+    }
+}
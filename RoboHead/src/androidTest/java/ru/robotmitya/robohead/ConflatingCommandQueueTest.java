@@ -0,0 +1,88 @@
+package ru.robotmitya.robohead;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import ru.robotmitya.robocommonlib.Rs;
+
+/**
+ * Tests {@link ConflatingCommandQueue}.
+ */
+public class ConflatingCommandQueueTest extends TestCase {
+    private static String take(final ConflatingCommandQueue queue, final int bufferSize) throws InterruptedException {
+        byte[] buffer = new byte[bufferSize];
+        int length = queue.take(buffer);
+        return new String(buffer, 0, length);
+    }
+
+    @Test
+    public void testKeepsNewestValuePerIdentifier() throws InterruptedException {
+        ConflatingCommandQueue queue = new ConflatingCommandQueue(Rs.DriveLeft.ID, Rs.DriveRight.ID);
+        queue.put("L0001R0001".getBytes());
+        queue.put("L0002R0002".getBytes());
+        queue.put("L0003".getBytes());
+        assertEquals("L0003R0002", take(queue, 256));
+        assertEquals(3, queue.getConflatedCount());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testNewerValueKeepsPlaceInOrder() throws InterruptedException {
+        ConflatingCommandQueue queue = new ConflatingCommandQueue(Rs.DriveLeft.ID);
+        queue.put("M0101".getBytes());
+        queue.put("L0001M0001".getBytes());
+        queue.put("L0002".getBytes());
+        assertEquals("M0101L0002M0001", take(queue, 256));
+        assertEquals(1, queue.getConflatedCount());
+
+        queue.put("M0102".getBytes());
+        queue.put("L0003".getBytes());
+        assertEquals("M0102L0003", take(queue, 256));
+    }
+
+    @Test
+    public void testConflatedCommandIsNotSplit() throws InterruptedException {
+        ConflatingCommandQueue queue = new ConflatingCommandQueue(Rs.DriveLeft.ID);
+        queue.put("M0101".getBytes());
+        queue.put("L0001".getBytes());
+        assertEquals("M0101", take(queue, 8));
+        queue.put("L0002".getBytes());
+        assertEquals("L0002", take(queue, 8));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testMalformedDataIsNotConflated() throws InterruptedException {
+        ConflatingCommandQueue queue = new ConflatingCommandQueue(Rs.DriveLeft.ID);
+        queue.put("L00".getBytes());
+        queue.put("LXXXX".getBytes());
+        assertEquals("L00LXXXX", take(queue, 256));
+        assertEquals(0, queue.getConflatedCount());
+    }
+
+    @Test
+    public void testSmallBuffer() throws InterruptedException {
+        ConflatingCommandQueue queue = new ConflatingCommandQueue(Rs.DriveLeft.ID, Rs.DriveRight.ID);
+        queue.put("M0101".getBytes());
+        queue.put("L0001R0001".getBytes());
+        assertEquals("M0101", take(queue, 7));
+        assertEquals("L0001", take(queue, 7));
+        assertEquals("R0001", take(queue, 7));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testClearAndClose() throws InterruptedException {
+        ConflatingCommandQueue queue = new ConflatingCommandQueue(Rs.DriveLeft.ID);
+        queue.put("M0101".getBytes());
+        queue.put("L0001".getBytes());
+        assertEquals(2, queue.clear());
+        assertTrue(queue.isEmpty());
+
+        queue.put("M0101".getBytes());
+        queue.close();
+        assertEquals("M0101", take(queue, 256));
+        assertEquals(-1, queue.take(new byte[256]));
+    }
+}
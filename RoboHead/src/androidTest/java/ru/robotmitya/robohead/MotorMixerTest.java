@@ -0,0 +1,74 @@
+package ru.robotmitya.robohead;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import ru.robotmitya.robocommonlib.MotorsSpeed;
+
+/**
+ * Compares {@link MotorMixer} with the exact motors speed calculation.
+ */
+public class MotorMixerTest extends TestCase {
+    private static final int STEPS = 200;
+
+    private static int getMaxError(final MotorMixer motorMixer) {
+        MotorsSpeed exact = new MotorsSpeed();
+        MotorsSpeed mixed = new MotorsSpeed();
+        int result = 0;
+        for (int i = -STEPS; i <= STEPS; i++) {
+            for (int j = -STEPS; j <= STEPS; j++) {
+                double x = (double) i / STEPS;
+                double y = (double) j / STEPS;
+                DriveJoystickAnalyzerNode.calculateMotorsSpeed(x, y, exact);
+                DriveJoystickAnalyzerNode.calculateMotorsSpeed(x, y, mixed, motorMixer);
+                result = Math.max(result, Math.abs(exact.mLeft - mixed.mLeft));
+                result = Math.max(result, Math.abs(exact.mRight - mixed.mRight));
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testDefaultResolutionAccuracy() {
+        assertTrue(getMaxError(new MotorMixer()) <= 1);
+    }
+
+    @Test
+    public void testLowResolutionAccuracy() {
+        assertTrue(getMaxError(new MotorMixer(16)) <= 3);
+    }
+
+    @Test
+    public void testGridPointsAreExact() {
+        MotorMixer motorMixer = new MotorMixer(8);
+        MotorsSpeed motorsSpeed = new MotorsSpeed();
+
+        DriveJoystickAnalyzerNode.calculateMotorsSpeed(1, 0, motorsSpeed, motorMixer);
+        assertEquals(255, motorsSpeed.mLeft);
+        assertEquals(-255, motorsSpeed.mRight);
+
+        DriveJoystickAnalyzerNode.calculateMotorsSpeed(0, 1, motorsSpeed, motorMixer);
+        assertEquals(255, motorsSpeed.mLeft);
+        assertEquals(255, motorsSpeed.mRight);
+
+        DriveJoystickAnalyzerNode.calculateMotorsSpeed(0, 0, motorsSpeed, motorMixer);
+        assertEquals(0, motorsSpeed.mLeft);
+        assertEquals(0, motorsSpeed.mRight);
+
+        DriveJoystickAnalyzerNode.calculateMotorsSpeed(-1, 0, motorsSpeed, motorMixer);
+        assertEquals(-255, motorsSpeed.mLeft);
+        assertEquals(255, motorsSpeed.mRight);
+    }
+
+    @Test
+    public void testClampsOutOfRangeCoordinates() {
+        MotorMixer motorMixer = new MotorMixer();
+        MotorsSpeed clamped = new MotorsSpeed();
+        MotorsSpeed mixed = new MotorsSpeed();
+        motorMixer.mixFirstQuadrant(1, 1, clamped);
+        motorMixer.mixFirstQuadrant(1.5, 2, mixed);
+        assertEquals(clamped.mLeft, mixed.mLeft);
+        assertEquals(clamped.mRight, mixed.mRight);
+    }
+}
@@ -0,0 +1,112 @@
+package ru.robotmitya.robohead;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import ru.robotmitya.robocommonlib.NodeScheduler;
+
+/**
+ * Tests {@link Reflex} and {@link ReflexSequencer}.
+ */
+public class ReflexSequencerTest extends TestCase {
+    private ScheduledThreadPoolExecutor mExecutor;
+    private NodeScheduler mScheduler;
+    private final List<String> mCommands = new ArrayList<String>();
+
+    private final ReflexSequencer.Output mOutput = new ReflexSequencer.Output() {
+        @Override
+        public void onCommand(final char identifier, final short value, final String command) {
+            synchronized (mCommands) {
+                mCommands.add(command);
+            }
+        }
+    };
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mExecutor = new ScheduledThreadPoolExecutor(1);
+        mScheduler = new NodeScheduler(mExecutor);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mExecutor.shutdownNow();
+        super.tearDown();
+    }
+
+    private String getCommands() {
+        synchronized (mCommands) {
+            StringBuilder result = new StringBuilder();
+            for (String command : mCommands) {
+                result.append(command);
+            }
+            return result.toString();
+        }
+    }
+
+    @Test
+    public void testCompile() {
+        Reflex reflex = Reflex.compile("test", 0, "M0101", "W0064", "M0102", "h005A", "W00C8", "M0001");
+        assertEquals(4, reflex.getLength());
+        assertEquals(0, reflex.getOffset(0));
+        assertEquals(100, reflex.getOffset(1));
+        assertEquals(100, reflex.getOffset(2));
+        assertEquals(300, reflex.getOffset(3));
+        assertEquals('h', reflex.getIdentifier(2));
+        assertEquals(0x5A, reflex.getValue(2));
+        assertEquals("M0001", reflex.getCommand(3));
+    }
+
+    @Test
+    public void testPlaysStepsInTime() throws InterruptedException {
+        ReflexSequencer sequencer = new ReflexSequencer(mScheduler, mOutput);
+        long start = System.currentTimeMillis();
+        assertTrue(sequencer.play(Reflex.compile("test", 0, "M0101", "W0032", "M0102", "W0032", "M0001")));
+        assertEquals("M0101", getCommands());
+        while ((sequencer.getReflex() != null) && (System.currentTimeMillis() - start < 2000)) {
+            Thread.sleep(5);
+        }
+        assertTrue(System.currentTimeMillis() - start >= 100);
+        assertEquals("M0101M0102M0001", getCommands());
+        assertEquals(3, sequencer.getJitter().getCount());
+        assertNull(sequencer.getReflex());
+    }
+
+    @Test
+    public void testLowerPriorityIsIgnored() {
+        ReflexSequencer sequencer = new ReflexSequencer(mScheduler, mOutput);
+        Reflex first = Reflex.compile("first", 1, "M0104", "W1000", "M0001");
+        assertTrue(sequencer.play(first));
+        assertFalse(sequencer.play(Reflex.compile("same", 1, "M0101")));
+        assertFalse(sequencer.play(Reflex.compile("lower", 0, "M0102")));
+        assertSame(first, sequencer.getReflex());
+        assertEquals("M0104", getCommands());
+    }
+
+    @Test
+    public void testHigherPriorityPreempts() throws InterruptedException {
+        ReflexSequencer sequencer = new ReflexSequencer(mScheduler, mOutput);
+        assertTrue(sequencer.play(Reflex.compile("first", 0, "M0101", "W0032", "M0001")));
+        assertTrue(sequencer.play(Reflex.compile("second", 1, "M0106", "W0064", "M0002")));
+        Thread.sleep(300);
+        assertEquals("M0101M0106M0002", getCommands());
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        ReflexSequencer sequencer = new ReflexSequencer(mScheduler, mOutput);
+        assertTrue(sequencer.play(Reflex.compile("test", 0, "M0101", "W0032", "M0001")));
+        sequencer.cancel();
+        assertNull(sequencer.getReflex());
+        Thread.sleep(150);
+        assertEquals("M0101", getCommands());
+        assertTrue(sequencer.play(Reflex.compile("next", 0, "M0102")));
+        assertEquals("M0101M0102", getCommands());
+    }
+}
@@ -0,0 +1,69 @@
+package ru.robotmitya.robohead;
+
+import android.test.InstrumentationTestCase;
+
+import org.junit.Test;
+
+import ru.robotmitya.robocommonlib.Log;
+import ru.robotmitya.robocommonlib.Microbenchmark;
+import ru.robotmitya.robocommonlib.MotorsSpeed;
+
+/**
+ * Compares {@link MotorMixer} with the exact first quadrant motors speed calculation.
+ * <p>
+ * Not part of the test run. Run with {@code ./gradlew :RoboHead:connectedAndroidTest -Pbenchmark},
+ * the ns/op values are sent as instrumentation status and logged.
+ */
+public class MotorMixerBenchmark extends InstrumentationTestCase {
+    private static final int ITERATIONS = 100000;
+    private static final int ROUNDS = 9;
+
+    private static final int POINT_COUNT = 1024;
+
+    @Test
+    public void testMixFirstQuadrant() {
+        // Points spread over the first quadrant, so the lookup table isn't read from one cache line.
+        final double[] x = new double[POINT_COUNT];
+        final double[] y = new double[POINT_COUNT];
+        for (int i = 0; i < POINT_COUNT; i++) {
+            double angle = (i % 90) * Math.PI / 180;
+            double r = (i % 100 + 1) / 100.0;
+            x[i] = r * Math.cos(angle);
+            y[i] = r * Math.sin(angle);
+        }
+        final MotorsSpeed motorsSpeed = new MotorsSpeed();
+        final MotorMixer motorMixer = new MotorMixer();
+
+        Microbenchmark benchmark = new Microbenchmark(ITERATIONS, ROUNDS);
+        report(benchmark.measure("exact", new Microbenchmark.Task() {
+            @Override
+            public long run(final int iterations) {
+                long sink = 0;
+                for (int i = 0; i < iterations; i++) {
+                    int point = i & (POINT_COUNT - 1);
+                    DriveJoystickAnalyzerNode.calculateMotorsSpeedInFirstQuadrant(x[point], y[point], motorsSpeed);
+                    sink += motorsSpeed.mLeft + motorsSpeed.mRight;
+                }
+                return sink;
+            }
+        }), benchmark.measure("lookup_table", new Microbenchmark.Task() {
+            @Override
+            public long run(final int iterations) {
+                long sink = 0;
+                for (int i = 0; i < iterations; i++) {
+                    int point = i & (POINT_COUNT - 1);
+                    motorMixer.mixFirstQuadrant(x[point], y[point], motorsSpeed);
+                    sink += motorsSpeed.mLeft + motorsSpeed.mRight;
+                }
+                return sink;
+            }
+        }));
+    }
+
+    private void report(final Microbenchmark.Result... results) {
+        for (Microbenchmark.Result result : results) {
+            Log.i(this, result.toString());
+        }
+        getInstrumentation().sendStatus(0, Microbenchmark.toBundle(results));
+    }
+}
@@ -0,0 +1,78 @@
+package ru.robotmitya.robohead;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothSocket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+
+import ru.robotmitya.robocommonlib.Log;
+
+/**
+ * Bluetooth RFCOMM connection to the robo_body controller which MAC is set in the settings.
+ */
+public class BluetoothBodyTransport implements BodyTransport {
+    private final BluetoothAdapter mBluetoothAdapter;
+
+    private BluetoothSocket mBluetoothSocket;
+    private InputStream mInputStream;
+    private OutputStream mOutputStream;
+
+    public BluetoothBodyTransport(final BluetoothAdapter bluetoothAdapter) {
+        mBluetoothAdapter = bluetoothAdapter;
+    }
+
+    @Override
+    public void connect() throws IOException {
+        BluetoothSocket bluetoothSocket;
+        // Это - единственный метод подключиться напрямую, не используя поиска
+        // всех устройств в округе.
+        // createRfcommSocketToServiceRecord(), к сожалению, не работает
+        try {
+            BluetoothDevice bluetoothDevice = mBluetoothAdapter.getRemoteDevice(SettingsFragment.getRoboBodyMac());
+            Method method = bluetoothDevice.getClass().getMethod("createRfcommSocket", new Class[]{int.class});
+            bluetoothSocket = (BluetoothSocket) method.invoke(bluetoothDevice, 1 /*Integer.valueOf(1)*/);
+        } catch (Exception e) {
+            throw new IOException("Can't create socket: " + e.getMessage());
+        }
+
+        synchronized (this) {
+            mBluetoothSocket = bluetoothSocket;
+        }
+
+        // Если контроллер робота недоступен, connect() вызывает исключение.
+        bluetoothSocket.connect();
+
+        synchronized (this) {
+            mInputStream = bluetoothSocket.getInputStream();
+            mOutputStream = bluetoothSocket.getOutputStream();
+        }
+    }
+
+    @Override
+    public synchronized InputStream getInputStream() {
+        return mInputStream;
+    }
+
+    @Override
+    public synchronized OutputStream getOutputStream() {
+        return mOutputStream;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (mBluetoothSocket != null) {
+            try {
+                mBluetoothSocket.close();
+            } catch (IOException e) {
+                Log.e(this, "close error: " + e.getMessage());
+            }
+            mBluetoothSocket = null;
+        }
+        mInputStream = null;
+        mOutputStream = null;
+    }
+}
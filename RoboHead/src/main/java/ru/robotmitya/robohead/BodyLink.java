@@ -0,0 +1,268 @@
+package ru.robotmitya.robohead;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ru.robotmitya.robocommonlib.Log;
+import ru.robotmitya.robocommonlib.MessageStreamParser;
+import ru.robotmitya.robocommonlib.Metrics;
+import ru.robotmitya.robocommonlib.TopicMetrics;
+
+/**
+ * Keeps a {@link BodyTransport} connected and moves messages through it.
+ * <p>
+ * The reader task connects, then blocks on the input stream and parses whatever arrives. When the
+ * connection fails it reconnects, doubling the delay between attempts up to
+ * {@link #MAX_RECONNECT_DELAY_MS}. The writer task blocks on a {@link ConflatingCommandQueue} and
+ * writes whatever is queued with a single write, so senders never wait for the transport. Neither
+ * task spins while the link is idle or robo_body is unreachable.
+ */
+public class BodyLink {
+    /**
+     * Receives link events. Called from the reader and writer tasks, so must not block for long.
+     */
+    public interface Listener {
+        void onConnected();
+
+        void onMessage(char identifier, short value);
+
+        void onDisconnected();
+
+        void onSendError(byte[] data, IOException e);
+    }
+
+    /**
+     * Name of the link in {@link Metrics}. Received are messages from robo_body, published are writes
+     * to it, latency is how long a write takes.
+     */
+    public static final String METRICS_NAME = "robot_mitya/body_link";
+
+    public static final long INITIAL_RECONNECT_DELAY_MS = 500;
+    public static final long MAX_RECONNECT_DELAY_MS = 30000;
+
+    /**
+     * How long {@link #stop()} waits for queued data to be written.
+     */
+    private static final long STOP_TIMEOUT_MS = 1000;
+
+    private static final int WRITE_BUFFER_SIZE = 256;
+
+    private final BodyTransport mTransport;
+    private final Listener mListener;
+    private final long mInitialReconnectDelay;
+    private final long mMaxReconnectDelay;
+    private final ConflatingCommandQueue mWriteQueue;
+    private final MessageStreamParser mParser = new MessageStreamParser();
+    private final TopicMetrics mMetrics = Metrics.getTopic(METRICS_NAME);
+
+    private final MessageStreamParser.Listener mParserListener = new MessageStreamParser.Listener() {
+        @Override
+        public void onMessage(final char identifier, final short value) {
+            mMetrics.onReceived();
+            mListener.onMessage(identifier, value);
+        }
+    };
+
+    private volatile boolean mRunning;
+    private volatile boolean mConnected;
+    private volatile long mReconnectCount;
+    private final AtomicLong mDroppedCount = new AtomicLong();
+    private Future<?> mReaderFuture;
+    private Future<?> mWriterFuture;
+
+    public BodyLink(final BodyTransport transport, final Listener listener) {
+        this(transport, listener, new ConflatingCommandQueue());
+    }
+
+    public BodyLink(final BodyTransport transport, final Listener listener, final ConflatingCommandQueue writeQueue) {
+        this(transport, listener, writeQueue, INITIAL_RECONNECT_DELAY_MS, MAX_RECONNECT_DELAY_MS);
+    }
+
+    /**
+     * @param transport connection to robo_body.
+     * @param listener receives link events.
+     * @param writeQueue queue of data to write.
+     * @param initialReconnectDelay delay before the first reconnect attempt in ms.
+     * @param maxReconnectDelay max delay between reconnect attempts in ms.
+     */
+    public BodyLink(final BodyTransport transport, final Listener listener, final ConflatingCommandQueue writeQueue,
+                    final long initialReconnectDelay, final long maxReconnectDelay) {
+        mTransport = transport;
+        mListener = listener;
+        mWriteQueue = writeQueue;
+        mInitialReconnectDelay = initialReconnectDelay;
+        mMaxReconnectDelay = maxReconnectDelay;
+    }
+
+    /**
+     * Starts the reader and writer tasks.
+     * @param executorService runs the tasks. Must be able to run both at once.
+     */
+    public synchronized void start(final ExecutorService executorService) {
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        mWriteQueue.clear();
+        mReaderFuture = executorService.submit(new Runnable() {
+            @Override
+            public void run() {
+                read();
+            }
+        });
+        mWriterFuture = executorService.submit(new Runnable() {
+            @Override
+            public void run() {
+                write();
+            }
+        });
+    }
+
+    /**
+     * Writes data that is already queued, then closes the connection and stops both tasks.
+     */
+    public synchronized void stop() {
+        if (!mRunning) {
+            return;
+        }
+        mRunning = false;
+        mWriteQueue.close();
+        try {
+            mWriterFuture.get(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            mWriterFuture.cancel(true);
+        }
+        mConnected = false;
+        mTransport.close();
+        mReaderFuture.cancel(true);
+    }
+
+    /**
+     * Queues data to be written. Returns immediately.
+     * @param data bytes to write. Must not be changed afterwards.
+     * @return false if the link is not connected and the data is dropped.
+     */
+    public boolean send(final byte[] data) {
+        if (!mConnected) {
+            mDroppedCount.incrementAndGet();
+            return false;
+        }
+        mWriteQueue.put(data);
+        return true;
+    }
+
+    public boolean isConnected() {
+        return mConnected;
+    }
+
+    /**
+     * @return number of successful connects after the first one.
+     */
+    public long getReconnectCount() {
+        return mReconnectCount;
+    }
+
+    /**
+     * @return number of commands that were replaced by a newer value before being sent.
+     */
+    public long getConflatedCount() {
+        return mWriteQueue.getConflatedCount();
+    }
+
+    /**
+     * @return number of sends that were dropped because the link was not connected.
+     */
+    public long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    private void read() {
+        long reconnectDelay = mInitialReconnectDelay;
+        boolean firstConnect = true;
+        while (mRunning) {
+            InputStream inputStream;
+            try {
+                mTransport.connect();
+                inputStream = mTransport.getInputStream();
+            } catch (IOException e) {
+                Log.e(this, "connection error: " + e.getMessage());
+                mTransport.close();
+                try {
+                    Thread.sleep(reconnectDelay);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                reconnectDelay = Math.min(reconnectDelay * 2, mMaxReconnectDelay);
+                continue;
+            }
+
+            synchronized (this) {
+                // stop() may have closed the transport while connect() was still running.
+                if (!mRunning) {
+                    mTransport.close();
+                    return;
+                }
+                mConnected = true;
+            }
+            reconnectDelay = mInitialReconnectDelay;
+            if (!firstConnect) {
+                mReconnectCount++;
+            }
+            firstConnect = false;
+            mParser.reset();
+            Log.d(this, "connected");
+            mListener.onConnected();
+
+            try {
+                while (mParser.read(inputStream, mParserListener) >= 0) {
+                    // Blocks until more data arrives.
+                }
+            } catch (IOException e) {
+                if (mRunning) {
+                    Log.e(this, "input error: " + e.getMessage());
+                }
+            }
+
+            mConnected = false;
+            mTransport.close();
+            mDroppedCount.addAndGet(mWriteQueue.clear());
+            Log.d(this, "disconnected");
+            mListener.onDisconnected();
+        }
+    }
+
+    private void write() {
+        byte[] buffer = new byte[WRITE_BUFFER_SIZE];
+        while (true) {
+            int length;
+            try {
+                length = mWriteQueue.take(buffer);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (length < 0) {
+                return;
+            }
+            OutputStream outputStream = mTransport.getOutputStream();
+            if (!mConnected || (outputStream == null)) {
+                mDroppedCount.incrementAndGet();
+                continue;
+            }
+            try {
+                long startNanos = System.nanoTime();
+                outputStream.write(buffer, 0, length);
+                mMetrics.onPublished(startNanos);
+            } catch (IOException e) {
+                mListener.onSendError(Arrays.copyOf(buffer, length), e);
+                // The reader notices the closed connection and reconnects.
+                mTransport.close();
+            }
+        }
+    }
+}
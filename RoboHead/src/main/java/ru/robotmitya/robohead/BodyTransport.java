@@ -0,0 +1,33 @@
+package ru.robotmitya.robohead;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Byte stream connection to robo_body. Used by {@link BodyLink}, so that the link can be tested
+ * without Bluetooth.
+ */
+public interface BodyTransport {
+    /**
+     * Opens the connection. Blocks until it is open or fails.
+     * @throws IOException if robo_body is unreachable.
+     */
+    void connect() throws IOException;
+
+    /**
+     * @return stream from robo_body. Valid after {@link #connect()} succeeded.
+     */
+    InputStream getInputStream();
+
+    /**
+     * @return stream to robo_body. Valid after {@link #connect()} succeeded.
+     */
+    OutputStream getOutputStream();
+
+    /**
+     * Closes the connection. Must unblock a thread that is reading from the input stream.
+     * Can be called from any thread and more than once.
+     */
+    void close();
+}
@@ -0,0 +1,181 @@
+package ru.robotmitya.robohead;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import ru.robotmitya.robocommonlib.MessageCodec;
+import ru.robotmitya.robocommonlib.MessageHelper;
+
+/**
+ * Queue of data to be written to robo_body that keeps only the newest value of some commands.
+ * <p>
+ * Commands with a conflated identifier (e.g. motor speeds and servo positions) are queued only
+ * once. While such a command waits to be written, a newer value of it replaces the queued value in
+ * place, so a slow link never sends stale positions. The command keeps the place of the first one,
+ * all data is written in the order it was put otherwise.
+ */
+public class ConflatingCommandQueue {
+    private static final int IDENTIFIER_COUNT = 128;
+
+    private final boolean[] mConflated = new boolean[IDENTIFIER_COUNT];
+    // Queued message of each conflated identifier. It is in the FIFO while mPending is set.
+    private final byte[][] mSlots = new byte[IDENTIFIER_COUNT][];
+    private final boolean[] mPending = new boolean[IDENTIFIER_COUNT];
+
+    private final ArrayDeque<byte[]> mFifo = new ArrayDeque<byte[]>();
+    // Bytes of the first FIFO item that have already been taken. Slots are never taken in part.
+    private int mFifoOffset;
+
+    private boolean mClosed;
+
+    private long mConflatedCount;
+
+    /**
+     * @param conflatedIdentifiers identifiers of commands of which only the newest value matters.
+     */
+    public ConflatingCommandQueue(final String... conflatedIdentifiers) {
+        for (String identifier : conflatedIdentifiers) {
+            char c = MessageHelper.toIdentifierChar(identifier);
+            if (c >= IDENTIFIER_COUNT) {
+                throw new IllegalArgumentException("Identifier is out of range: " + identifier);
+            }
+            mConflated[c] = true;
+            mSlots[c] = new byte[MessageHelper.MESSAGE_LENGTH];
+        }
+    }
+
+    /**
+     * Adds data to the queue.
+     * @param data one or more RoboScript messages. Data that doesn't consist of whole messages is
+     *             queued as is. Must not be changed afterwards.
+     */
+    public synchronized void put(final byte[] data) {
+        if (data.length == 0) {
+            return;
+        }
+        if ((data.length % MessageHelper.MESSAGE_LENGTH != 0) || !containsConflated(data)) {
+            mFifo.add(data);
+            notifyAll();
+            return;
+        }
+
+        // Split the batch into runs of other messages and conflated commands.
+        int runStart = 0;
+        for (int i = 0; i < data.length; i += MessageHelper.MESSAGE_LENGTH) {
+            if (isConflated(data, i)) {
+                if (runStart < i) {
+                    mFifo.add(Arrays.copyOfRange(data, runStart, i));
+                }
+                conflate(data[i], MessageCodec.decodeValue(data, i));
+                runStart = i + MessageHelper.MESSAGE_LENGTH;
+            }
+        }
+        if (runStart < data.length) {
+            mFifo.add(Arrays.copyOfRange(data, runStart, data.length));
+        }
+        notifyAll();
+    }
+
+    /**
+     * Moves as much queued data as fits into the buffer. Blocks while the queue is empty.
+     * @param buffer buffer to fill. Must hold at least one message.
+     * @return number of bytes taken or -1 if the queue is closed and empty.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public synchronized int take(final byte[] buffer) throws InterruptedException {
+        while (isEmpty()) {
+            if (mClosed) {
+                return -1;
+            }
+            wait();
+        }
+
+        int length = 0;
+        while (!mFifo.isEmpty() && (length < buffer.length)) {
+            byte[] data = mFifo.peek();
+            char slotIdentifier = (char) data[0];
+            boolean slot = (slotIdentifier < IDENTIFIER_COUNT) && (data == mSlots[slotIdentifier]);
+            if (slot && (length + data.length > buffer.length)) {
+                // Its value may still change, so it waits for the next take.
+                break;
+            }
+            int count = Math.min(data.length - mFifoOffset, buffer.length - length);
+            System.arraycopy(data, mFifoOffset, buffer, length, count);
+            length += count;
+            mFifoOffset += count;
+            if (mFifoOffset == data.length) {
+                mFifo.poll();
+                mFifoOffset = 0;
+                if (slot) {
+                    mPending[slotIdentifier] = false;
+                }
+            }
+        }
+        return length;
+    }
+
+    public synchronized boolean isEmpty() {
+        return mFifo.isEmpty();
+    }
+
+    /**
+     * Drops all queued data and reopens the queue if it was closed.
+     * @return number of dropped data items and conflated commands.
+     */
+    public synchronized int clear() {
+        int result = mFifo.size();
+        mFifo.clear();
+        mFifoOffset = 0;
+        Arrays.fill(mPending, false);
+        mClosed = false;
+        return result;
+    }
+
+    /**
+     * Lets {@link #take} return -1 once the queued data is taken.
+     */
+    public synchronized void close() {
+        mClosed = true;
+        notifyAll();
+    }
+
+    /**
+     * @return number of commands that were replaced by a newer value before being sent.
+     */
+    public synchronized long getConflatedCount() {
+        return mConflatedCount;
+    }
+
+    private boolean containsConflated(final byte[] data) {
+        for (int i = 0; i < data.length; i += MessageHelper.MESSAGE_LENGTH) {
+            if (isConflated(data, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isConflated(final byte[] data, final int offset) {
+        int identifier = data[offset] & 0xff;
+        if ((identifier >= IDENTIFIER_COUNT) || !mConflated[identifier]) {
+            return false;
+        }
+        for (int i = 1; i < MessageHelper.MESSAGE_LENGTH; i++) {
+            if (!MessageCodec.isHexDigit(data[offset + i] & 0xff)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void conflate(final byte identifier, final short value) {
+        char c = (char) identifier;
+        if (mPending[c]) {
+            mConflatedCount++;
+        } else {
+            mPending[c] = true;
+            mFifo.add(mSlots[c]);
+        }
+        MessageCodec.encode(c, value, mSlots[c], 0);
+    }
+}
@@ -14,10 +14,12 @@ import geometry_msgs.Twist;
 import geometry_msgs.Vector3;
 import ru.robotmitya.robocommonlib.AppConst;
 import ru.robotmitya.robocommonlib.Log;
-import ru.robotmitya.robocommonlib.MessageHelper;
+import ru.robotmitya.robocommonlib.MessageBatch;
+import ru.robotmitya.robocommonlib.Metrics;
 import ru.robotmitya.robocommonlib.MotorsSpeed;
 import ru.robotmitya.robocommonlib.RoboState;
 import ru.robotmitya.robocommonlib.Rs;
+import ru.robotmitya.robocommonlib.TopicMetrics;
 
 /**
  * Created by dmitrydzz on 4/12/14.
@@ -27,6 +29,27 @@ public class DriveJoystickAnalyzerNode implements NodeMain {
 
     private Publisher<std_msgs.String> mBodyPublisher;
 
+    private final TopicMetrics mJoystickMetrics = Metrics.getTopic(AppConst.RoboHead.DRIVE_JOYSTICK_TOPIC);
+    private final TopicMetrics mBodyMetrics = Metrics.getTopic(AppConst.RoboHead.BODY_TOPIC);
+
+    private final MotorMixer mMotorMixer;
+    private final MotorsSpeed mMotorsSpeed = new MotorsSpeed();
+
+    // Left and right motor commands go to the body in one message.
+    private final MessageBatch mBatch = new MessageBatch(2);
+
+    public DriveJoystickAnalyzerNode() {
+        this(null);
+    }
+
+    /**
+     * @param motorMixer lookup table to calculate motors speed with or null to calculate the exact values.
+     */
+    public DriveJoystickAnalyzerNode(final MotorMixer motorMixer) {
+        super();
+        mMotorMixer = motorMixer;
+    }
+
     @Override
     public GraphName getDefaultNodeName() {
         return GraphName.of(AppConst.RoboHead.DRIVE_JOYSTICK_ANALYZER_NODE);
@@ -40,16 +63,19 @@ public class DriveJoystickAnalyzerNode implements NodeMain {
         subscriber.addMessageListener(new MessageListener<Twist>() {
             @Override
             public void onNewMessage(geometry_msgs.Twist message) {
+                long receivedNanos = mJoystickMetrics.onReceived();
                 Vector3 linear = message.getLinear();
                 Vector3 angular = message.getAngular();
                 double x = -angular.getZ();
                 double y = linear.getX();
-                Log.messageReceived(DriveJoystickAnalyzerNode.this, String.format("x=%.3f, y=%.3f", x, y));
-
-                MotorsSpeed motorsSpeed = new MotorsSpeed();
-                calculateMotorsSpeed(x, y, motorsSpeed);
-                publishCommand(MessageHelper.makeMessage(Rs.DriveLeft.ID, motorsSpeed.mLeft));
-                publishCommand(MessageHelper.makeMessage(Rs.DriveRight.ID, motorsSpeed.mRight));
+                Log.messageReceived(DriveJoystickAnalyzerNode.this, "x=%.3f, y=%.3f", x, y);
+
+                calculateMotorsSpeed(x, y, mMotorsSpeed, mMotorMixer);
+                mBatch.clear();
+                mBatch.add(Rs.DriveLeft.ID, mMotorsSpeed.mLeft);
+                mBatch.add(Rs.DriveRight.ID, mMotorsSpeed.mRight);
+                publishCommand(mBatch.toString());
+                mBodyMetrics.onPublished(receivedNanos);
             }
         });
     }
@@ -70,40 +96,57 @@ public class DriveJoystickAnalyzerNode implements NodeMain {
         std_msgs.String message = mBodyPublisher.newMessage();
         message.setData(command);
         mBodyPublisher.publish(message);
-        Log.messagePublished(this, mBodyPublisher.getTopicName().toString(), command);
+        Log.messagePublished(this, mBodyPublisher.getTopicName(), command);
     }
 
     public static final short MAX_SPEED = 255;
 
     public static void calculateMotorsSpeed(double x, double y, final MotorsSpeed motorsSpeed) {
+        calculateMotorsSpeed(x, y, motorsSpeed, null);
+    }
+
+    /**
+     * @param motorMixer lookup table to use or null to calculate the exact values.
+     */
+    public static void calculateMotorsSpeed(double x, double y, final MotorsSpeed motorsSpeed,
+                                            final MotorMixer motorMixer) {
         if (RoboState.getIsReverse() && SettingsFragment.getDriveReverse()) {
             y = -y;
         }
 
         if ((x >= 0) && (y >= 0)) {
-            calculateMotorsSpeedInFirstQuadrant(x, y, motorsSpeed);
+            calculateMotorsSpeedInFirstQuadrant(x, y, motorsSpeed, motorMixer);
         } else if ((x < 0) && (y >= 0)) {
             x = -x;
-            calculateMotorsSpeedInFirstQuadrant(x, y, motorsSpeed);
+            calculateMotorsSpeedInFirstQuadrant(x, y, motorsSpeed, motorMixer);
             short temp = motorsSpeed.mLeft;
             motorsSpeed.mLeft = motorsSpeed.mRight;
             motorsSpeed.mRight = temp;
         } else if ((x < 0) && (y < 0)) {
             x = -x;
             y = -y;
-            calculateMotorsSpeedInFirstQuadrant(x, y, motorsSpeed);
+            calculateMotorsSpeedInFirstQuadrant(x, y, motorsSpeed, motorMixer);
             motorsSpeed.mLeft = (short) -motorsSpeed.mLeft;
             motorsSpeed.mRight = (short) -motorsSpeed.mRight;
         } else if ((x >= 0) && (y < 0)) {
             y = -y;
-            calculateMotorsSpeedInFirstQuadrant(x, y, motorsSpeed);
+            calculateMotorsSpeedInFirstQuadrant(x, y, motorsSpeed, motorMixer);
             short temp = motorsSpeed.mLeft;
             motorsSpeed.mLeft = (short) -motorsSpeed.mRight;
             motorsSpeed.mRight = (short) -temp;
         }
     }
 
-    private static void calculateMotorsSpeedInFirstQuadrant(double x, double y, final MotorsSpeed motorsSpeed) {
+    private static void calculateMotorsSpeedInFirstQuadrant(double x, double y, final MotorsSpeed motorsSpeed,
+                                                            final MotorMixer motorMixer) {
+        if (motorMixer != null) {
+            motorMixer.mixFirstQuadrant(x, y, motorsSpeed);
+        } else {
+            calculateMotorsSpeedInFirstQuadrant(x, y, motorsSpeed);
+        }
+    }
+
+    static void calculateMotorsSpeedInFirstQuadrant(double x, double y, final MotorsSpeed motorsSpeed) {
         if ((x >= 0) && (y >= 0)) {
             double r = Math.sqrt(x * x + y * y);
             double angle = Math.asin(y / r);
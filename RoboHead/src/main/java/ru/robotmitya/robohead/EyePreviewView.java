@@ -24,8 +24,10 @@ import java.util.List;
 import ru.robotmitya.robocommonlib.AppConst;
 import ru.robotmitya.robocommonlib.Log;
 import ru.robotmitya.robocommonlib.MessageHelper;
+import ru.robotmitya.robocommonlib.Metrics;
 import ru.robotmitya.robocommonlib.RoboState;
 import ru.robotmitya.robocommonlib.Rs;
+import ru.robotmitya.robocommonlib.TopicMetrics;
 
 /**
  * Created by dmitrydzz on 1/30/14.
@@ -41,6 +43,9 @@ public class EyePreviewView extends RosCameraPreviewView {
 
     private Publisher<std_msgs.String> mBoardPublisher;
     private Publisher<std_msgs.String> mHeadStatePublisher;
+    private final TopicMetrics mEyeMetrics = Metrics.getTopic(AppConst.RoboHead.EYE_TOPIC);
+    private final TopicMetrics mBoardMetrics = Metrics.getTopic(AppConst.RoboBoard.BOARD_TOPIC);
+    private final TopicMetrics mHeadStateMetrics = Metrics.getTopic(AppConst.RoboHead.HEAD_STATE_TOPIC);
 
     private int mSelectedCameraMode;
 
@@ -107,6 +112,7 @@ public class EyePreviewView extends RosCameraPreviewView {
         subscriber.addMessageListener(new MessageListener<std_msgs.String>() {
             @Override
             public void onNewMessage(final std_msgs.String message) {
+                mEyeMetrics.onReceived();
                 String messageBody = message.getData();
                 Log.messageReceived(EyePreviewView.this, messageBody);
                 String command = MessageHelper.getMessageIdentifier(messageBody);
@@ -186,16 +192,18 @@ public class EyePreviewView extends RosCameraPreviewView {
         std_msgs.String message = mBoardPublisher.newMessage();
         message.setData(command);
         mBoardPublisher.publish(message);
+        mBoardMetrics.onPublished();
 
-        Log.messagePublished(this, mBoardPublisher.getTopicName().toString(), command);
+        Log.messagePublished(this, mBoardPublisher.getTopicName(), command);
     }
 
     private void publishToHeadState(final String command) {
         std_msgs.String message = mHeadStatePublisher.newMessage();
         message.setData(command);
         mHeadStatePublisher.publish(message);
+        mHeadStateMetrics.onPublished();
 
-        Log.messagePublished(this, mHeadStatePublisher.getTopicName().toString(), command);
+        Log.messagePublished(this, mHeadStatePublisher.getTopicName(), command);
     }
 
     protected Camera.Size getOptimalPreviewSize(List<Camera.Size> sizes, int width, int height) {
@@ -65,10 +65,16 @@ public class FaceFragment extends Fragment {
         super.onResume();
         LocalBroadcastManager.getInstance(getActivity()).registerReceiver(
                 mMessageReceiver, new IntentFilter(FaceNode.BROADCAST_FACE_CHANGE_NAME));
+        if (mFaceHelper != null) {
+            mFaceHelper.startIdleActions();
+        }
     }
 
     @Override
     public void onPause() {
+        if (mFaceHelper != null) {
+            mFaceHelper.stopIdleActions();
+        }
         LocalBroadcastManager.getInstance(getActivity()).unregisterReceiver(mMessageReceiver);
         super.onPause();
     }
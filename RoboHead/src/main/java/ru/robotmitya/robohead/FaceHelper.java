@@ -36,6 +36,21 @@ public final class FaceHelper {
 	 */
 	private FaceType mCurrentFace = FaceType.ftOk;
 	
+	/**
+	 * Постоянная часть промежутка между Idle-событиями в мс.
+	 */
+	private static final int IDLE_ACTION_CONST_DELAY = 4000;
+	
+	/**
+	 * Максимальная случайная часть промежутка между Idle-событиями в мс.
+	 */
+	private static final int IDLE_ACTION_VARIANT_MAX_DELAY = 4000;
+	
+	/**
+	 * Генерируются ли Idle-события.
+	 */
+	private boolean mIdleActionsStarted = false;
+	
 	/**
 	 * Хэндлер, принимающий пустые сообщения, сигнализирующие о необходимости запустить автоматическую анимацию.
 	 * Автоматическую, потому что она запускается не по команде, а сама, при простое робота. 
@@ -43,6 +58,11 @@ public final class FaceHelper {
 	private Handler mHandlerIdleAction = new Handler() {
 		@Override
 		public void handleMessage(final Message msg) {
+			if (!mIdleActionsStarted) {
+				return;
+			}
+			scheduleIdleAction();
+			
 			int resource;
 			
 			switch (mCurrentFace) {
@@ -91,25 +111,36 @@ public final class FaceHelper {
 	 */
 	public FaceHelper(final ImageView imageView) {
 		mImageView = imageView;
-		
-		// Thread для генерации Idle-событий. События генерируются с переменной периодичностью.
-		// Промежутки составляют 4 сек + random(4 сек).
-		new Thread() {
-			public void run() {
-				try {
-					final int constDelay = 4000;
-					final int variantMaxDelay = 4000;
-					
-					while (true) {					
-						int variantDelay = (int) (variantMaxDelay * Math.random());
-						Thread.sleep(constDelay + variantDelay);
-						mHandlerIdleAction.sendEmptyMessage(0);
-					}
-				} catch (InterruptedException e) {
-						e.printStackTrace();
-				}
-			}
-		} .start();
+		startIdleActions();
+	}
+	
+	/**
+	 * Запуск генерации Idle-событий. События генерируются с переменной периодичностью.
+	 * Промежутки составляют 4 сек + random(4 сек). Отдельный поток для этого не нужен: следующее
+	 * событие ставится в очередь хэндлера при обработке предыдущего.
+	 */
+	public void startIdleActions() {
+		if (mIdleActionsStarted) {
+			return;
+		}
+		mIdleActionsStarted = true;
+		scheduleIdleAction();
+	}
+	
+	/**
+	 * Остановка генерации Idle-событий (например, когда лицо не видно).
+	 */
+	public void stopIdleActions() {
+		mIdleActionsStarted = false;
+		mHandlerIdleAction.removeMessages(0);
+	}
+	
+	/**
+	 * Постановка в очередь следующего Idle-события.
+	 */
+	private void scheduleIdleAction() {
+		int variantDelay = (int) (IDLE_ACTION_VARIANT_MAX_DELAY * Math.random());
+		mHandlerIdleAction.sendEmptyMessageDelayed(0, IDLE_ACTION_CONST_DELAY + variantDelay);
 	}
 	
 	/**
@@ -17,8 +17,10 @@ import org.ros.node.topic.Subscriber;
 import ru.robotmitya.robocommonlib.AppConst;
 import ru.robotmitya.robocommonlib.Log;
 import ru.robotmitya.robocommonlib.MessageHelper;
+import ru.robotmitya.robocommonlib.Metrics;
 import ru.robotmitya.robocommonlib.RoboState;
 import ru.robotmitya.robocommonlib.Rs;
+import ru.robotmitya.robocommonlib.TopicMetrics;
 
 /**
  * Created by dmitrydzz on 3/3/14.
@@ -41,6 +43,11 @@ public class FaceNode implements NodeMain {
     private Publisher<std_msgs.String> mBoardPublisher;
     private Publisher<std_msgs.String> mHeadStatePublisher;
 
+    private final TopicMetrics mFaceMetrics = Metrics.getTopic(AppConst.RoboHead.FACE_TOPIC);
+    private final TopicMetrics mReflexMetrics = Metrics.getTopic(AppConst.RoboHead.REFLEX_TOPIC);
+    private final TopicMetrics mBoardMetrics = Metrics.getTopic(AppConst.RoboBoard.BOARD_TOPIC);
+    private final TopicMetrics mHeadStateMetrics = Metrics.getTopic(AppConst.RoboHead.HEAD_STATE_TOPIC);
+
     public FaceNode(final Context context) {
         mContext = context;
     }
@@ -60,6 +67,7 @@ public class FaceNode implements NodeMain {
         subscriber.addMessageListener(new MessageListener<std_msgs.String>() {
             @Override
             public void onNewMessage(std_msgs.String message) {
+                mFaceMetrics.onReceived();
                 String messageBody = message.getData();
 
                 Log.messageReceived(FaceNode.this, messageBody);
@@ -122,25 +130,27 @@ public class FaceNode implements NodeMain {
     public void onError(Node node, Throwable throwable) {
     }
 
-    private void publishCommand(final Publisher<std_msgs.String> publisher, final String command) {
+    private void publishCommand(final Publisher<std_msgs.String> publisher, final TopicMetrics metrics,
+                                final String command) {
         if (publisher != null) {
             std_msgs.String message = publisher.newMessage();
             message.setData(command);
             publisher.publish(message);
-            Log.messagePublished(this, publisher.getTopicName().toString(), command);
+            metrics.onPublished();
+            Log.messagePublished(this, publisher.getTopicName(), command);
         }
     }
 
     private void publishToReflexTopic(String command) {
-        publishCommand(mReflexPublisher, command);
+        publishCommand(mReflexPublisher, mReflexMetrics, command);
     }
 
     private void publishToBoardTopic(String command) {
-        publishCommand(mBoardPublisher, command);
+        publishCommand(mBoardPublisher, mBoardMetrics, command);
     }
 
     private void publishToHeadStateTopic(String command) {
-        publishCommand(mHeadStatePublisher, command);
+        publishCommand(mHeadStatePublisher, mHeadStateMetrics, command);
     }
 
     private boolean isRoboStateRequest(final String message) {
@@ -12,9 +12,11 @@ import org.ros.node.topic.Subscriber;
 import geometry_msgs.Vector3;
 import ru.robotmitya.robocommonlib.AppConst;
 import ru.robotmitya.robocommonlib.Log;
-import ru.robotmitya.robocommonlib.MessageHelper;
+import ru.robotmitya.robocommonlib.MessageBatch;
+import ru.robotmitya.robocommonlib.Metrics;
 import ru.robotmitya.robocommonlib.RoboState;
 import ru.robotmitya.robocommonlib.Rs;
+import ru.robotmitya.robocommonlib.TopicMetrics;
 
 /**
  * Created by dmitrydzz on 4/12/14.
@@ -25,6 +27,12 @@ public class HeadJoystickAnalyzerNode implements NodeMain {
 
     private Publisher<std_msgs.String> mBodyPublisher;
 
+    private final TopicMetrics mJoystickMetrics = Metrics.getTopic(AppConst.RoboHead.HEAD_JOYSTICK_TOPIC);
+    private final TopicMetrics mBodyMetrics = Metrics.getTopic(AppConst.RoboHead.BODY_TOPIC);
+
+    // Horizontal and vertical servo commands go to the body in one message.
+    private final MessageBatch mBatch = new MessageBatch(2);
+
     private final Vector2 mPosition = new Vector2();
     private Vector2 mSmoothedPosition;
 
@@ -41,6 +49,7 @@ public class HeadJoystickAnalyzerNode implements NodeMain {
         subscriber.addMessageListener(new MessageListener<geometry_msgs.Twist>() {
             @Override
             public void onNewMessage(geometry_msgs.Twist message) {
+                long receivedNanos = mJoystickMetrics.onReceived();
                 Vector3 linear = message.getLinear();
                 Vector3 angular = message.getAngular();
                 float x = (float) -angular.getZ();
@@ -59,14 +68,15 @@ public class HeadJoystickAnalyzerNode implements NodeMain {
                     mSmoothedPosition.lerp(mPosition, SMOOTH_FACTOR);
                 }
 
-                Log.messageReceived(HeadJoystickAnalyzerNode.this, String.format("x=%.3f, y=%.3f", mSmoothedPosition.x, mSmoothedPosition.y));
+                Log.messageReceived(HeadJoystickAnalyzerNode.this, "x=%.3f, y=%.3f", mSmoothedPosition.x, mSmoothedPosition.y);
 
                 short horizontalDegree = getHorizontalDegree(mSmoothedPosition);
                 short verticalDegree = getVerticalDegree(mSmoothedPosition);
-                String horizontalCommand = MessageHelper.makeMessage(Rs.HeadHorizontalPosition.ID, horizontalDegree);
-                String verticalCommand = MessageHelper.makeMessage(Rs.HeadVerticalPosition.ID, verticalDegree);
-                publishCommand(horizontalCommand);
-                publishCommand(verticalCommand);
+                mBatch.clear();
+                mBatch.add(Rs.HeadHorizontalPosition.ID, horizontalDegree);
+                mBatch.add(Rs.HeadVerticalPosition.ID, verticalDegree);
+                publishCommand(mBatch.toString());
+                mBodyMetrics.onPublished(receivedNanos);
             }
         });
     }
@@ -87,7 +97,7 @@ public class HeadJoystickAnalyzerNode implements NodeMain {
         std_msgs.String message = mBodyPublisher.newMessage();
         message.setData(command);
         mBodyPublisher.publish(message);
-        Log.messagePublished(this, mBodyPublisher.getTopicName().toString(), command);
+        Log.messagePublished(this, mBodyPublisher.getTopicName(), command);
     }
 
     private short getHorizontalDegree(final Vector2 pos) {
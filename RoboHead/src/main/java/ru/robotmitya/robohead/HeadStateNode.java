@@ -5,6 +5,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.os.BatteryManager;
+import android.os.SystemClock;
 
 import org.ros.message.MessageListener;
 import org.ros.namespace.GraphName;
@@ -15,24 +16,59 @@ import org.ros.node.topic.Publisher;
 import org.ros.node.topic.Subscriber;
 
 import java.lang.String;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledFuture;
 
 import ru.robotmitya.robocommonlib.AppConst;
 import ru.robotmitya.robocommonlib.Log;
 import ru.robotmitya.robocommonlib.MessageHelper;
+import ru.robotmitya.robocommonlib.Metrics;
+import ru.robotmitya.robocommonlib.NodeScheduler;
 import ru.robotmitya.robocommonlib.RoboState;
 import ru.robotmitya.robocommonlib.Rs;
+import ru.robotmitya.robocommonlib.TopicMetrics;
 
 /**
  * Created by dmitrydzz on 3/26/14.
- *
+ * <p>
+ * In delta publishing mode (the default) only actual state changes go to the board, and RoboHead
+ * battery changes are sent at most once per {@link #BATTERY_PUBLISH_PERIOD_MS} unless the charger is
+ * plugged or unplugged. The board gets the whole state by sending {@link Rs.Instruction#STATE_REQUEST}
+ * to the head state topic.
  */
 public class HeadStateNode implements NodeMain {
+    public static final long BATTERY_PUBLISH_PERIOD_MS = 10000;
+
+    private static final short PLUGGED = 0x0100;
+
+    private static final int NO_VALUE = Integer.MIN_VALUE;
+
     private final Context mContext;
+    private final boolean mDeltaPublishing;
     private Publisher<std_msgs.String> mBoardPublisher;
+    private final TopicMetrics mHeadStateMetrics = Metrics.getTopic(AppConst.RoboHead.HEAD_STATE_TOPIC);
+    private final TopicMetrics mBoardMetrics = Metrics.getTopic(AppConst.RoboBoard.BOARD_TOPIC);
     private BroadcastReceiver mBatteryBroadcastReceiver;
 
+    private NodeScheduler mScheduler;
+    private long mLastBatteryPublishTime = -BATTERY_PUBLISH_PERIOD_MS;
+    private ScheduledFuture<?> mPendingBatteryPublish;
+
+    // Last robo_body battery responses indexed by their type (the high hex digit).
+    private final int[] mBodyBatteryResponses = new int[16];
+
     public HeadStateNode(Context context) {
+        this(context, true);
+    }
+
+    /**
+     * @param deltaPublishing true to forward only state changes to the board, false to forward
+     *                        every state message.
+     */
+    public HeadStateNode(Context context, final boolean deltaPublishing) {
         mContext = context;
+        mDeltaPublishing = deltaPublishing;
+        Arrays.fill(mBodyBatteryResponses, NO_VALUE);
 
         mBatteryBroadcastReceiver = new BroadcastReceiver() {
             @Override
@@ -47,11 +83,13 @@ public class HeadStateNode implements NodeMain {
                     messageValue |= (short)percent;
                     final int NOT_PLUGGED = 0;
                     if (plugged != NOT_PLUGGED) {
-                        messageValue |= (short)0x0100;
+                        messageValue |= PLUGGED;
                     }
 
-                    RoboState.setRoboHeadBatteryState(messageValue);
-                    publishToBoard(MessageHelper.makeMessage(Rs.BatteryResponse.ID, messageValue));
+                    short previousValue = RoboState.getRoboHeadBatteryState();
+                    if (RoboState.setRoboHeadBatteryState(messageValue) || !mDeltaPublishing) {
+                        onBatteryStateChanged((previousValue & PLUGGED) != (messageValue & PLUGGED));
+                    }
                 } catch (Exception e) {
                     Log.e(this, e.getMessage());
                 }
@@ -68,14 +106,17 @@ public class HeadStateNode implements NodeMain {
     public void onStart(final ConnectedNode connectedNode) {
         RoboState.setSelectedCamIndex((short)SettingsFragment.getCameraIndex());
 
-        mContext.registerReceiver(mBatteryBroadcastReceiver, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
-
+        mScheduler = new NodeScheduler(connectedNode.getScheduledExecutorService());
         mBoardPublisher = connectedNode.newPublisher(AppConst.RoboBoard.BOARD_TOPIC, std_msgs.String._TYPE);
 
+        // The battery broadcast is sticky, so the receiver is called right away. The publisher must exist by then.
+        mContext.registerReceiver(mBatteryBroadcastReceiver, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+
         Subscriber<std_msgs.String> subscriber = connectedNode.newSubscriber(AppConst.RoboHead.HEAD_STATE_TOPIC, std_msgs.String._TYPE);
         subscriber.addMessageListener(new MessageListener<std_msgs.String>() {
             @Override
             public void onNewMessage(std_msgs.String message) {
+                mHeadStateMetrics.onReceived();
                 try {
                     String messageBody = message.getData();
                     String identifier = MessageHelper.getMessageIdentifier(messageBody);
@@ -85,46 +126,45 @@ public class HeadStateNode implements NodeMain {
 
                     if (identifier.contentEquals(Rs.Instruction.ID)) {
                         switch (value) {
+                            case Rs.Instruction.STATE_REQUEST:
+                                publishStateToBoard();
+                                break;
                             case Rs.Instruction.HEADLIGHTS_OFF:
                             case Rs.Instruction.HEADLIGHTS_ON:
-                                RoboState.setHeadlights(value);
-                                publishToBoard(messageBody);
+                                publishChangeToBoard(RoboState.setHeadlights(value), messageBody);
                                 break;
                             case Rs.Instruction.CAMERA_OFF:
                                 SettingsFragment.setCameraIndex(mContext, AppConst.Common.Camera.DISABLED);
-                                RoboState.setSelectedCamIndex((short) SettingsFragment.getCameraIndex());
-                                publishToBoard(messageBody);
+                                publishChangeToBoard(
+                                        RoboState.setSelectedCamIndex((short) SettingsFragment.getCameraIndex()), messageBody);
                                 break;
                             case Rs.Instruction.CAMERA_BACK_ON:
                                 SettingsFragment.setCameraIndex(mContext, AppConst.Common.Camera.BACK);
-                                RoboState.setSelectedCamIndex((short) SettingsFragment.getCameraIndex());
-                                publishToBoard(messageBody);
+                                publishChangeToBoard(
+                                        RoboState.setSelectedCamIndex((short) SettingsFragment.getCameraIndex()), messageBody);
                                 break;
                             case Rs.Instruction.CAMERA_FRONT_ON:
                                 SettingsFragment.setCameraIndex(mContext, AppConst.Common.Camera.FRONT);
-                                RoboState.setSelectedCamIndex((short) SettingsFragment.getCameraIndex());
-                                publishToBoard(messageBody);
+                                publishChangeToBoard(
+                                        RoboState.setSelectedCamIndex((short) SettingsFragment.getCameraIndex()), messageBody);
                                 break;
                             case Rs.Instruction.ACCUMULATOR_MAIN_CHARGING_STOP:
                             case Rs.Instruction.ACCUMULATOR_MAIN_CHARGING_START:
-                                RoboState.setMainAccumulatorCharging(value);
-                                publishToBoard(messageBody);
+                                publishChangeToBoard(RoboState.setMainAccumulatorCharging(value), messageBody);
                                 break;
                             case Rs.Instruction.ACCUMULATOR_ROBOHEAD_CHARGING_STOP:
                             case Rs.Instruction.ACCUMULATOR_ROBOHEAD_CHARGING_START:
-                                RoboState.setRoboHeadAccumulatorCharging(value);
-                                publishToBoard(messageBody);
+                                publishChangeToBoard(RoboState.setRoboHeadAccumulatorCharging(value), messageBody);
                                 break;
                         }
                     } else if (identifier.equals(Rs.Mood.ID)) {
-                        RoboState.setMood(value);
-                        publishToBoard(messageBody);
+                        publishChangeToBoard(RoboState.setMood(value), messageBody);
                     } else if (identifier.equals(Rs.BatteryRequest.ID)) {
                         if (value == Rs.BatteryRequest.ROBOHEAD_BATTERY) {
                             publishToBoard(MessageHelper.makeMessage(Rs.BatteryResponse.ID, RoboState.getRoboHeadBatteryState()));
                         }
                     } else if (identifier.equals(Rs.BatteryResponse.ID)) {
-                        publishToBoard(messageBody);
+                        publishChangeToBoard(setBodyBatteryResponse(value), messageBody);
                     }
                 } catch (Exception e) {
                     Log.e(this, e.getMessage());
@@ -141,6 +181,10 @@ public class HeadStateNode implements NodeMain {
             // Got strange error: java.lang.IllegalArgumentException: Receiver not registered
             // That couldn't be true %-\ So just catch it!
         }
+        synchronized (this) {
+            mScheduler.cancelAll();
+            mPendingBatteryPublish = null;
+        }
     }
 
     @Override
@@ -151,11 +195,85 @@ public class HeadStateNode implements NodeMain {
     public void onError(Node node, Throwable throwable) {
     }
 
+    /**
+     * Publishes the RoboHead battery state now or, if it was published less than
+     * {@link #BATTERY_PUBLISH_PERIOD_MS} ago, when the period ends. Only the latest state is published then.
+     */
+    private synchronized void onBatteryStateChanged(final boolean pluggedChanged) {
+        if (!mDeltaPublishing) {
+            publishBatteryState();
+            return;
+        }
+        long delay = mLastBatteryPublishTime + BATTERY_PUBLISH_PERIOD_MS - SystemClock.elapsedRealtime();
+        if (pluggedChanged || (delay <= 0)) {
+            if (mPendingBatteryPublish != null) {
+                mPendingBatteryPublish.cancel(false);
+                mPendingBatteryPublish = null;
+            }
+            publishBatteryState();
+        } else if (mPendingBatteryPublish == null) {
+            mPendingBatteryPublish = mScheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (HeadStateNode.this) {
+                        mPendingBatteryPublish = null;
+                        publishBatteryState();
+                    }
+                }
+            }, delay);
+        }
+    }
+
+    private void publishBatteryState() {
+        mLastBatteryPublishTime = SystemClock.elapsedRealtime();
+        publishToBoard(MessageHelper.makeMessage(Rs.BatteryResponse.ID, RoboState.getRoboHeadBatteryState()));
+    }
+
+    /**
+     * @return true if the response differs from the last one of the same type.
+     */
+    private synchronized boolean setBodyBatteryResponse(final short value) {
+        int type = (value >> 12) & 0xf;
+        if (mBodyBatteryResponses[type] == value) {
+            return false;
+        }
+        mBodyBatteryResponses[type] = value;
+        return true;
+    }
+
+    /**
+     * Sends every value the node knows to the board, whether it has changed or not.
+     */
+    private void publishStateToBoard() {
+        RoboState.Snapshot state = RoboState.getSnapshot();
+        publishToBoard(MessageHelper.makeMessage(Rs.Instruction.ID, state.getHeadlights()));
+        publishToBoard(MessageHelper.makeMessage(Rs.Instruction.ID, state.getMainAccumulatorCharging()));
+        publishToBoard(MessageHelper.makeMessage(Rs.Instruction.ID, state.getRoboHeadAccumulatorCharging()));
+        publishToBoard(MessageHelper.makeMessage(Rs.BatteryResponse.ID, state.getRoboHeadBatteryState()));
+        synchronized (this) {
+            for (int response : mBodyBatteryResponses) {
+                if (response != NO_VALUE) {
+                    publishToBoard(MessageHelper.makeMessage(Rs.BatteryResponse.ID, (short) response));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param changed whether the message changed the state.
+     */
+    private void publishChangeToBoard(final boolean changed, final String command) {
+        if (changed || !mDeltaPublishing) {
+            publishToBoard(command);
+        }
+    }
+
     private void publishToBoard(final String command) {
         std_msgs.String message = mBoardPublisher.newMessage();
         message.setData(command);
         mBoardPublisher.publish(message);
+        mBoardMetrics.onPublished();
 
-        Log.messagePublished(this, mBoardPublisher.getTopicName().toString(), command);
+        Log.messagePublished(this, mBoardPublisher.getTopicName(), command);
     }
 }
@@ -18,6 +18,7 @@ import org.ros.node.NodeMainExecutor;
 
 import ru.robotmitya.robocommonlib.AppConst;
 import ru.robotmitya.robocommonlib.Log;
+import ru.robotmitya.robocommonlib.MetricsNode;
 import ru.robotmitya.robocommonlib.SettingsHelper;
 
 import java.net.MalformedURLException;
@@ -124,11 +125,13 @@ public class MainActivity extends RosActivity {
         ReflexNode reflexNode = new ReflexNode(this);
         nodeMainExecutor.execute(reflexNode, nodeConfiguration);
 
-        DriveJoystickAnalyzerNode driveJoystickAnalyzerNode = new DriveJoystickAnalyzerNode();
+        DriveJoystickAnalyzerNode driveJoystickAnalyzerNode = new DriveJoystickAnalyzerNode(new MotorMixer());
         nodeMainExecutor.execute(driveJoystickAnalyzerNode, nodeConfiguration);
 
         HeadJoystickAnalyzerNode headJoystickAnalyzerNode = new HeadJoystickAnalyzerNode();
         nodeMainExecutor.execute(headJoystickAnalyzerNode, nodeConfiguration);
+
+        nodeMainExecutor.execute(new MetricsNode(AppConst.RoboHead.METRICS_NODE), nodeConfiguration);
     }
 
     private void initBluetoothBodyNode(final NodeMainExecutor nodeMainExecutor,
@@ -0,0 +1,83 @@
+package ru.robotmitya.robohead;
+
+import ru.robotmitya.robocommonlib.MotorsSpeed;
+
+/**
+ * Lookup table version of {@link DriveJoystickAnalyzerNode}'s first quadrant motor speed
+ * calculation. The exact function is sampled once on a square grid over x and y in [0, 1] and
+ * values between the samples are interpolated bilinearly, so mixing needs no sqrt/asin calls
+ * and doesn't allocate.
+ * <p>
+ * Coordinates above 1 are clamped to 1. Instances are immutable and can be shared.
+ */
+public final class MotorMixer {
+    /**
+     * With this resolution speeds differ from the exact ones by 1 at most.
+     */
+    public static final int DEFAULT_RESOLUTION = 64;
+
+    private final int mResolution;
+    private final short[] mLeft;
+    private final short[] mRight;
+
+    public MotorMixer() {
+        this(DEFAULT_RESOLUTION);
+    }
+
+    /**
+     * @param resolution number of grid cells per axis.
+     */
+    public MotorMixer(final int resolution) {
+        if (resolution <= 0) {
+            throw new IllegalArgumentException("Resolution must be positive.");
+        }
+        mResolution = resolution;
+        final int size = resolution + 1;
+        mLeft = new short[size * size];
+        mRight = new short[size * size];
+        MotorsSpeed motorsSpeed = new MotorsSpeed();
+        for (int j = 0; j < size; j++) {
+            for (int i = 0; i < size; i++) {
+                DriveJoystickAnalyzerNode.calculateMotorsSpeedInFirstQuadrant(
+                        (double) i / resolution, (double) j / resolution, motorsSpeed);
+                mLeft[j * size + i] = motorsSpeed.mLeft;
+                mRight[j * size + i] = motorsSpeed.mRight;
+            }
+        }
+    }
+
+    public int getResolution() {
+        return mResolution;
+    }
+
+    /**
+     * Same as the exact first quadrant calculation.
+     * @param x joystick x in [0, 1].
+     * @param y joystick y in [0, 1].
+     * @param motorsSpeed receives the speeds.
+     */
+    public void mixFirstQuadrant(final double x, final double y, final MotorsSpeed motorsSpeed) {
+        final double gridX = Math.min(x, 1) * mResolution;
+        final double gridY = Math.min(y, 1) * mResolution;
+        int i = (int) gridX;
+        int j = (int) gridY;
+        if (i >= mResolution) {
+            i = mResolution - 1;
+        }
+        if (j >= mResolution) {
+            j = mResolution - 1;
+        }
+        final double fx = gridX - i;
+        final double fy = gridY - j;
+        final int index = j * (mResolution + 1) + i;
+        motorsSpeed.mLeft = interpolate(mLeft, index, fx, fy);
+        motorsSpeed.mRight = interpolate(mRight, index, fx, fy);
+    }
+
+    private short interpolate(final short[] table, final int index, final double fx, final double fy) {
+        final int nextRow = index + mResolution + 1;
+        double bottom = table[index] + (table[index + 1] - table[index]) * fx;
+        double top = table[nextRow] + (table[nextRow + 1] - table[nextRow]) * fx;
+        return (short) Math.round(bottom + (top - bottom) * fy);
+    }
+}
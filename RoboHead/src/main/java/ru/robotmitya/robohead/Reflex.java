@@ -0,0 +1,99 @@
+package ru.robotmitya.robohead;
+
+import java.util.Arrays;
+
+import ru.robotmitya.robocommonlib.MessageHelper;
+import ru.robotmitya.robocommonlib.Rs;
+
+/**
+ * Reflex compiled to a timeline. Wait commands are turned into time offsets of the commands that
+ * follow them, so nothing is parsed while the reflex is played by {@link ReflexSequencer}.
+ */
+public final class Reflex {
+    private final String mName;
+    private final int mPriority;
+    private final long[] mOffsets;
+    private final char[] mIdentifiers;
+    private final short[] mValues;
+    private final String[] mCommands;
+
+    private Reflex(final String name, final int priority, final long[] offsets, final char[] identifiers,
+                   final short[] values, final String[] commands) {
+        mName = name;
+        mPriority = priority;
+        mOffsets = offsets;
+        mIdentifiers = identifiers;
+        mValues = values;
+        mCommands = commands;
+    }
+
+    /**
+     * @param name name for logs.
+     * @param priority a playing reflex is only interrupted by a reflex with a higher priority.
+     * @param commands commands in the robo_body format. {@link Rs.Wait} delays the following commands
+     *                 by its value in ms.
+     * @return compiled reflex.
+     */
+    public static Reflex compile(final String name, final int priority, final String... commands) {
+        long[] offsets = new long[commands.length];
+        char[] identifiers = new char[commands.length];
+        short[] values = new short[commands.length];
+        String[] compiledCommands = new String[commands.length];
+        long offset = 0;
+        int length = 0;
+        for (String command : commands) {
+            char identifier = MessageHelper.getMessageIdentifierChar(command);
+            int value = MessageHelper.getMessageIntegerValue(command);
+            if (identifier == MessageHelper.toIdentifierChar(Rs.Wait.ID)) {
+                offset += value;
+            } else {
+                offsets[length] = offset;
+                identifiers[length] = identifier;
+                values[length] = (short) value;
+                compiledCommands[length] = command;
+                length++;
+            }
+        }
+        return new Reflex(name, priority, Arrays.copyOf(offsets, length), Arrays.copyOf(identifiers, length),
+                Arrays.copyOf(values, length), Arrays.copyOf(compiledCommands, length));
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public int getPriority() {
+        return mPriority;
+    }
+
+    /**
+     * @return number of commands without waits.
+     */
+    public int getLength() {
+        return mCommands.length;
+    }
+
+    /**
+     * @return time of the step from the reflex start in ms.
+     */
+    public long getOffset(final int step) {
+        return mOffsets[step];
+    }
+
+    public char getIdentifier(final int step) {
+        return mIdentifiers[step];
+    }
+
+    public short getValue(final int step) {
+        return mValues[step];
+    }
+
+    public String getCommand(final int step) {
+        return mCommands[step];
+    }
+
+    @Override
+    public String toString() {
+        return mName;
+    }
+}
@@ -11,12 +11,15 @@ import org.ros.node.topic.Publisher;
 import org.ros.node.topic.Subscriber;
 
 import java.lang.String;
-import java.util.ArrayList;
 
 import ru.robotmitya.robocommonlib.AppConst;
+import ru.robotmitya.robocommonlib.LatencyHistogram;
 import ru.robotmitya.robocommonlib.Log;
 import ru.robotmitya.robocommonlib.MessageHelper;
+import ru.robotmitya.robocommonlib.Metrics;
+import ru.robotmitya.robocommonlib.NodeScheduler;
 import ru.robotmitya.robocommonlib.Rs;
+import ru.robotmitya.robocommonlib.TopicMetrics;
 
 /**
  * Created by dmitrydzz on 3/6/14.
@@ -28,104 +31,61 @@ public final class ReflexNode implements NodeMain {
     private Publisher<std_msgs.String> mBodyPublisher;
     private Publisher<std_msgs.String> mFacePublisher;
 
-    private ArrayList<String> mHappyReflex; // M0101
-    private ArrayList<String> mPlayReflex;  // M0102
-    private ArrayList<String> mSadReflex;   // M0103
-    private ArrayList<String> mAngryReflex; // M0104
-    private ArrayList<String> mDanceReflex; // M0105 Nina Simone "Ain't Got No – I Got Life"
-    private ArrayList<String> mNoseReflex;  // M0106
+    private final TopicMetrics mReflexMetrics = Metrics.getTopic(AppConst.RoboHead.REFLEX_TOPIC);
+    private final TopicMetrics mBodyMetrics = Metrics.getTopic(AppConst.RoboHead.BODY_TOPIC);
+    private final TopicMetrics mFaceMetrics = Metrics.getTopic(AppConst.RoboHead.FACE_TOPIC);
+
+    // Reflexes that react to hurting the robot interrupt the other ones.
+    private static final int PRIORITY_NORMAL = 0;
+    private static final int PRIORITY_PAIN = 1;
+
+    private final Reflex mHappyReflex = Reflex.compile("happy", PRIORITY_NORMAL, // M0101
+            MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.ACTION_HAPPY), // smile, wag the tail
+            MessageHelper.makeMessage(Rs.Wait.ID, (short) 4000), // 4 seconds delay
+            MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.FACE_OK)); // normal face
+    private final Reflex mPlayReflex = Reflex.compile("play", PRIORITY_NORMAL, // M0102
+            MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.ACTION_PLAY), // want to play face, jump
+            MessageHelper.makeMessage(Rs.Wait.ID, (short) 4000), // 4 seconds delay
+            MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.FACE_OK)); // normal face
+    private final Reflex mSadReflex = Reflex.compile("sad", PRIORITY_NORMAL, // M0103
+            MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.ACTION_SAD), // sad face, hang down his head
+            MessageHelper.makeMessage(Rs.Wait.ID, (short) 5000), // 5 seconds delay
+            MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.FACE_OK)); // normal face
+    private final Reflex mAngryReflex = Reflex.compile("angry", PRIORITY_PAIN, // M0104
+            MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.ACTION_ANGRY),
+            MessageHelper.makeMessage(Rs.Wait.ID, (short) 4000), // 4 seconds delay
+            MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.FACE_OK)); // normal face
+    // Nina Simone "Ain't Got No – I Got Life"
+    private final Reflex mDanceReflex = Reflex.compile("dance", PRIORITY_NORMAL, // M0105
+            MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.ACTION_DANCE),
+            MessageHelper.makeMessage(Rs.Wait.ID, (short) 6500), // 6.5 seconds delay
+            MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.FACE_OK)); // normal face
+    private final Reflex mNoseReflex = Reflex.compile("nose", PRIORITY_PAIN, // M0106
+            MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.ACTION_NOSE),
+            MessageHelper.makeMessage(Rs.Wait.ID, (short) 3000), // 3 seconds delay
+            MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.FACE_OK)); // normal face
+
+    private static final char MOOD_ID = MessageHelper.toIdentifierChar(Rs.Mood.ID);
+
+    private ReflexSequencer mSequencer;
 
     public ReflexNode(final Context context) {
         mContext = context;
-        initHappyReflex();
-        initPlayReflex();
-        initSadReflex();
-        initAngryReflex();
-        initDanceReflex();
-        initNoseReflex();
     }
 
-    private void initHappyReflex() {
-        mHappyReflex = new ArrayList<String>();
-        mHappyReflex.add(MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.ACTION_HAPPY)); // smile, wag the tail
-        mHappyReflex.add(MessageHelper.makeMessage(Rs.Wait.ID, (short) 4000)); // 4 seconds delay
-        mHappyReflex.add(MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.FACE_OK)); // normal face
-    }
-
-    private void initPlayReflex() {
-        mPlayReflex = new ArrayList<String>();
-        mPlayReflex.add(MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.ACTION_PLAY)); // want to play face, jump
-        mPlayReflex.add(MessageHelper.makeMessage(Rs.Wait.ID, (short) 4000)); // 4 seconds delay
-        mPlayReflex.add(MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.FACE_OK)); // normal face
-    }
-
-    private void initSadReflex() {
-        mSadReflex = new ArrayList<String>();
-        mSadReflex.add(MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.ACTION_SAD)); // sad face, hang down his head
-        mSadReflex.add(MessageHelper.makeMessage(Rs.Wait.ID, (short)5000)); // 5 seconds delay
-        mSadReflex.add(MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.FACE_OK)); // normal face
-    }
-
-    private void initAngryReflex() {
-        mAngryReflex = new ArrayList<String>();
-        mAngryReflex.add(MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.ACTION_ANGRY));
-        mAngryReflex.add(MessageHelper.makeMessage(Rs.Wait.ID, (short)4000)); // 4 seconds delay
-        mAngryReflex.add(MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.FACE_OK)); // normal face
-    }
-
-    private void initDanceReflex() {
-        mDanceReflex = new ArrayList<String>();
-        mDanceReflex.add(MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.ACTION_DANCE));
-        mDanceReflex.add(MessageHelper.makeMessage(Rs.Wait.ID, (short)6500)); // 6.5 seconds delay
-        mDanceReflex.add(MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.FACE_OK)); // normal face
-    }
-
-    private void initNoseReflex() {
-        mNoseReflex = new ArrayList<String>();
-        mNoseReflex.add(MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.ACTION_NOSE));
-        mNoseReflex.add(MessageHelper.makeMessage(Rs.Wait.ID, (short) 3000)); // 3 seconds delay
-        mNoseReflex.add(MessageHelper.makeMessage(Rs.Mood.ID, Rs.Mood.FACE_OK)); // normal face
-    }
-
-    private boolean mIsExecutingReflex = false;
-
-    private void executeReflex(final ArrayList<String> reflex) {
-        if (mIsExecutingReflex) {
-            return;
+    private void executeReflex(final Reflex reflex) {
+        if (!mSequencer.play(reflex)) {
+            Log.d(this, "reflex ignored: " + reflex);
         }
-
-        mIsExecutingReflex = true;
-        new Thread(new Runnable() {
-            @Override
-            public void run() {
-                for (String command : reflex) {
-                    String messageIdentifier = MessageHelper.getMessageIdentifier(command);
-                    int messageValue = MessageHelper.getMessageIntegerValue(command);
-
-                    if (messageIdentifier.equals(Rs.Wait.ID)) {
-                        try {
-                            Thread.sleep(messageValue);
-                        } catch (InterruptedException e) {
-                            Log.e(ReflexNode.this, String.format(mContext.getResources().getString(R.string.error_command_failed), command));
-                        }
-                    } else {
-                        if (messageIdentifier.equals(Rs.Mood.ID)) {
-                            publishCommand(mFacePublisher, command);
-                        }
-                        publishCommand(mBodyPublisher, command);
-                    }
-                }
-
-                mIsExecutingReflex = false;
-            }
-        }).start();
     }
 
-    private void publishCommand(final Publisher<std_msgs.String> publisher, final String command) {
+    private void publishCommand(final Publisher<std_msgs.String> publisher, final TopicMetrics metrics,
+                                final String command) {
         std_msgs.String message = publisher.newMessage();
         message.setData(command);
         publisher.publish(message);
-        Log.messagePublished(this, publisher.getTopicName().toString(), command);
+        metrics.onPublished();
+        Log.messagePublished(this, publisher.getTopicName(), command);
     }
 
     @Override
@@ -138,10 +98,22 @@ public final class ReflexNode implements NodeMain {
         mBodyPublisher = connectedNode.newPublisher(AppConst.RoboHead.BODY_TOPIC, std_msgs.String._TYPE);
         mFacePublisher = connectedNode.newPublisher(AppConst.RoboHead.FACE_TOPIC, std_msgs.String._TYPE);
 
+        mSequencer = new ReflexSequencer(new NodeScheduler(connectedNode.getScheduledExecutorService()),
+                new ReflexSequencer.Output() {
+                    @Override
+                    public void onCommand(final char identifier, final short value, final String command) {
+                        if (identifier == MOOD_ID) {
+                            publishCommand(mFacePublisher, mFaceMetrics, command);
+                        }
+                        publishCommand(mBodyPublisher, mBodyMetrics, command);
+                    }
+                });
+
         Subscriber<std_msgs.String> subscriber = connectedNode.newSubscriber(AppConst.RoboHead.REFLEX_TOPIC, std_msgs.String._TYPE);
         subscriber.addMessageListener(new MessageListener<std_msgs.String>() {
             @Override
             public void onNewMessage(std_msgs.String message) {
+                mReflexMetrics.onReceived();
                 String messageBody = message.getData();
                 String identifier = MessageHelper.getMessageIdentifier(messageBody);
                 int value = MessageHelper.getMessageIntegerValue(messageBody);
@@ -168,6 +140,10 @@ public final class ReflexNode implements NodeMain {
 
     @Override
     public void onShutdown(Node node) {
+        mSequencer.cancel();
+        LatencyHistogram jitter = mSequencer.getJitter();
+        Log.d(this, "reflex step jitter (us): p50=" + jitter.getPercentile(50) + ", p99=" + jitter.getPercentile(99)
+                + ", max=" + jitter.getMax());
     }
 
     @Override
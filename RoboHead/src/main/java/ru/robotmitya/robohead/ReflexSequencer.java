@@ -0,0 +1,114 @@
+package ru.robotmitya.robohead;
+
+import java.util.concurrent.ScheduledFuture;
+
+import ru.robotmitya.robocommonlib.LatencyHistogram;
+import ru.robotmitya.robocommonlib.NodeScheduler;
+
+/**
+ * Plays one {@link Reflex} at a time on a {@link NodeScheduler}. Each step is scheduled for its time
+ * from the reflex start, so late steps don't delay the following ones. A reflex with a higher priority
+ * interrupts the playing one, any other reflex is ignored until the playing one ends.
+ * <p>
+ * The delay between the planned and the actual time of every step is recorded to {@link #getJitter()}.
+ */
+public final class ReflexSequencer {
+    public interface Output {
+        /**
+         * Called on the scheduler thread for each reflex step.
+         * @param identifier command identifier.
+         * @param value command value.
+         * @param command the whole command text.
+         */
+        void onCommand(char identifier, short value, String command);
+    }
+
+    private final NodeScheduler mScheduler;
+    private final Output mOutput;
+    private final LatencyHistogram mJitter = new LatencyHistogram();
+
+    private Reflex mReflex;
+    private int mStep;
+    private long mStartNanos;
+    private ScheduledFuture<?> mFuture;
+    // Incremented on every start and cancel so an already running task of a previous reflex does nothing.
+    private int mGeneration;
+
+    public ReflexSequencer(final NodeScheduler scheduler, final Output output) {
+        mScheduler = scheduler;
+        mOutput = output;
+    }
+
+    /**
+     * Starts the reflex. Steps with zero offset are played right in this call.
+     * @param reflex reflex to play.
+     * @return false if the reflex is ignored because another one with the same or higher priority is playing.
+     */
+    public synchronized boolean play(final Reflex reflex) {
+        if ((mReflex != null) && (reflex.getPriority() <= mReflex.getPriority())) {
+            return false;
+        }
+        cancel();
+        mReflex = reflex;
+        mStep = 0;
+        mStartNanos = System.nanoTime();
+        playDueSteps();
+        return true;
+    }
+
+    /**
+     * Stops the playing reflex. Its remaining steps are not played.
+     */
+    public synchronized void cancel() {
+        mGeneration++;
+        if (mFuture != null) {
+            mFuture.cancel(false);
+            mFuture = null;
+        }
+        mReflex = null;
+    }
+
+    /**
+     * @return the playing reflex or null.
+     */
+    public synchronized Reflex getReflex() {
+        return mReflex;
+    }
+
+    /**
+     * @return delays of the steps from their planned time in µs.
+     */
+    public LatencyHistogram getJitter() {
+        return mJitter;
+    }
+
+    private void playDueSteps() {
+        while (mStep < mReflex.getLength()) {
+            long plannedNanos = mStartNanos + mReflex.getOffset(mStep) * 1000000;
+            long delayNanos = plannedNanos - System.nanoTime();
+            if (delayNanos > 0) {
+                scheduleStep((delayNanos + 999999) / 1000000);
+                return;
+            }
+            mJitter.recordSince(plannedNanos);
+            mOutput.onCommand(mReflex.getIdentifier(mStep), mReflex.getValue(mStep), mReflex.getCommand(mStep));
+            mStep++;
+        }
+        mReflex = null;
+    }
+
+    private void scheduleStep(final long delay) {
+        final int generation = mGeneration;
+        mFuture = mScheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (ReflexSequencer.this) {
+                    if (generation == mGeneration) {
+                        mFuture = null;
+                        playDueSteps();
+                    }
+                }
+            }
+        }, delay);
+    }
+}
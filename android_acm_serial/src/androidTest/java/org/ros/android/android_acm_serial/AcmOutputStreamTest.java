@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2026 The android_core contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.android.android_acm_serial;
+
+import android.hardware.usb.UsbConstants;
+import android.hardware.usb.UsbEndpoint;
+import android.hardware.usb.UsbRequest;
+import android.os.Parcel;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs {@link AcmOutputStream} against a request pool whose transfers complete
+ * as soon as they are queued.
+ */
+public class AcmOutputStreamTest extends TestCase {
+
+  private static final int MAX_PACKET_SIZE = 64;
+  private static final long TIMEOUT_MILLIS = 5000;
+
+  /**
+   * Records the size and the bytes of each transfer instead of talking to a
+   * device.
+   */
+  private static class FakeUsbRequestPool extends UsbRequestPool {
+
+    private final BlockingQueue<UsbRequest> requests;
+    private final Map<UsbRequest, ByteBuffer> buffers;
+    private final List<Integer> transferSizes;
+    private final ByteArrayOutputStream transferred;
+
+    private UsbRequestCallback callback;
+
+    private class FakeUsbRequest extends UsbRequest {
+      @Override
+      public boolean queue(ByteBuffer buffer, int length) {
+        byte[] data = new byte[length];
+        buffer.get(data);
+        synchronized (FakeUsbRequestPool.this) {
+          transferSizes.add(length);
+          transferred.write(data, 0, length);
+          FakeUsbRequestPool.this.notifyAll();
+        }
+        // The transfer completes right away, as if the wait thread got it.
+        callback.onRequestComplete(this);
+        requests.add(this);
+        return true;
+      }
+    }
+
+    FakeUsbRequestPool() {
+      super(null);
+      requests = new LinkedBlockingQueue<UsbRequest>();
+      buffers = Maps.newIdentityHashMap();
+      transferSizes = Lists.newArrayList();
+      transferred = new ByteArrayOutputStream();
+    }
+
+    @Override
+    public void addEndpoint(UsbEndpoint endpoint, UsbRequestCallback callback, int requestCount,
+        int bufferSize) {
+      this.callback = callback;
+      for (int i = 0; i < requestCount; i++) {
+        UsbRequest request = new FakeUsbRequest();
+        buffers.put(request, ByteBuffer.allocateDirect(bufferSize));
+        requests.add(request);
+      }
+    }
+
+    @Override
+    public UsbRequest poll(UsbEndpoint endpoint) {
+      try {
+        return requests.take();
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public void recycle(UsbEndpoint endpoint, UsbRequest request) {
+      requests.add(request);
+    }
+
+    @Override
+    public ByteBuffer getBuffer(UsbEndpoint endpoint, UsbRequest request) {
+      return buffers.get(request);
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    synchronized List<Integer> getTransferSizes() {
+      return Lists.newArrayList(transferSizes);
+    }
+
+    synchronized byte[] getTransferred() {
+      return transferred.toByteArray();
+    }
+
+    synchronized boolean awaitTransferCount(int count) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+      while (transferSizes.size() < count && System.currentTimeMillis() < deadline) {
+        wait(10);
+      }
+      return transferSizes.size() >= count;
+    }
+  }
+
+  private static class CountingCallback implements UsbRequestCallback {
+    final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public void onRequestComplete(UsbRequest request) {
+      count.incrementAndGet();
+    }
+  }
+
+  /**
+   * {@link UsbEndpoint} has no public constructor, so the endpoint is read from
+   * a parcel the way the USB service passes it.
+   */
+  private static UsbEndpoint newBulkOutEndpoint() {
+    Parcel parcel = Parcel.obtain();
+    parcel.writeInt(UsbConstants.USB_DIR_OUT | 1);
+    parcel.writeInt(UsbConstants.USB_ENDPOINT_XFER_BULK);
+    parcel.writeInt(MAX_PACKET_SIZE);
+    parcel.writeInt(0);
+    parcel.setDataPosition(0);
+    UsbEndpoint endpoint = UsbEndpoint.CREATOR.createFromParcel(parcel);
+    parcel.recycle();
+    return endpoint;
+  }
+
+  private static byte[] newSequence(int length) {
+    byte[] buffer = new byte[length];
+    for (int i = 0; i < length; i++) {
+      buffer[i] = (byte) i;
+    }
+    return buffer;
+  }
+
+  @Test
+  public void testEachWriteIsATransferByDefault() throws IOException {
+    FakeUsbRequestPool pool = new FakeUsbRequestPool();
+    AcmOutputStream outputStream =
+        new AcmOutputStream(pool, newBulkOutEndpoint(), new AcmWriteOptions());
+    outputStream.write(1);
+    outputStream.write(2);
+    outputStream.write(new byte[10], 0, 10);
+    assertEquals(Arrays.asList(1, 1, 10), pool.getTransferSizes());
+    outputStream.close();
+  }
+
+  @Test
+  public void testChattyWritesAreCoalescedIntoPackets() throws IOException {
+    FakeUsbRequestPool pool = new FakeUsbRequestPool();
+    CountingCallback callback = new CountingCallback();
+    AcmOutputStream outputStream =
+        new AcmOutputStream(pool, newBulkOutEndpoint(),
+            new AcmWriteOptions().setCoalescing(true).setCallback(callback));
+    byte[] expected = newSequence(200);
+    for (byte b : expected) {
+      outputStream.write(b);
+    }
+    assertEquals(Arrays.asList(64, 64, 64), pool.getTransferSizes());
+    assertEquals(3, callback.count.get());
+
+    outputStream.flush();
+    assertEquals(Arrays.asList(64, 64, 64, 8), pool.getTransferSizes());
+    assertEquals(4, callback.count.get());
+    assertTrue(Arrays.equals(expected, pool.getTransferred()));
+    outputStream.close();
+  }
+
+  @Test
+  public void testFlushSendsPartialPacket() throws IOException {
+    FakeUsbRequestPool pool = new FakeUsbRequestPool();
+    AcmOutputStream outputStream =
+        new AcmOutputStream(pool, newBulkOutEndpoint(), new AcmWriteOptions().setCoalescing(true));
+    outputStream.write(newSequence(10), 0, 10);
+    outputStream.write(42);
+    assertTrue(pool.getTransferSizes().isEmpty());
+
+    outputStream.flush();
+    assertEquals(Arrays.asList(11), pool.getTransferSizes());
+    // Nothing is pending, so there is nothing more to send.
+    outputStream.flush();
+    assertEquals(Arrays.asList(11), pool.getTransferSizes());
+    outputStream.close();
+  }
+
+  @Test
+  public void testLingerExpirySendsPartialPacket() throws Exception {
+    FakeUsbRequestPool pool = new FakeUsbRequestPool();
+    CountingCallback callback = new CountingCallback();
+    AcmOutputStream outputStream =
+        new AcmOutputStream(pool, newBulkOutEndpoint(),
+            new AcmWriteOptions().setCoalescing(true).setLingerMillis(50).setCallback(callback));
+    for (int i = 0; i < 5; i++) {
+      outputStream.write(i);
+    }
+    assertTrue(pool.getTransferSizes().isEmpty());
+
+    assertTrue(pool.awaitTransferCount(1));
+    assertEquals(Arrays.asList(5), pool.getTransferSizes());
+    assertTrue(Arrays.equals(newSequence(5), pool.getTransferred()));
+    assertEquals(1, callback.count.get());
+    outputStream.close();
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2026 The android_core contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.android.android_acm_serial;
+
+import android.hardware.usb.UsbRequest;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class AcmWriteOptionsTest extends TestCase {
+
+  @Test
+  public void testDefaultsWriteEachTransferOnItsOwn() {
+    AcmWriteOptions options = new AcmWriteOptions();
+    assertEquals(AcmWriteOptions.DEFAULT_REQUEST_COUNT, options.getRequestCount());
+    assertFalse(options.isCoalescing());
+    assertEquals(0, options.getLingerMillis());
+    assertNull(options.getCallback());
+  }
+
+  @Test
+  public void testEnableCoalescing() {
+    UsbRequestCallback callback = new UsbRequestCallback() {
+      @Override
+      public void onRequestComplete(UsbRequest request) {
+      }
+    };
+    AcmWriteOptions options =
+        new AcmWriteOptions().setRequestCount(4).setCoalescing(true).setLingerMillis(5)
+            .setCallback(callback);
+    assertEquals(4, options.getRequestCount());
+    assertTrue(options.isCoalescing());
+    assertEquals(5, options.getLingerMillis());
+    assertSame(callback, options.getCallback());
+  }
+
+  @Test
+  public void testRejectsInvalidValues() {
+    AcmWriteOptions options = new AcmWriteOptions();
+    try {
+      options.setRequestCount(0);
+      fail();
+    } catch (IllegalArgumentException e) {
+    }
+    try {
+      options.setLingerMillis(-1);
+      fail();
+    } catch (IllegalArgumentException e) {
+    }
+    assertEquals(AcmWriteOptions.DEFAULT_REQUEST_COUNT, options.getRequestCount());
+    assertEquals(0, options.getLingerMillis());
+  }
+}
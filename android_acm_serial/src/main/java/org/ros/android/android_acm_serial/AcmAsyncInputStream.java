@@ -1,12 +1,12 @@
 /*
  * Copyright (C) 2011 Google Inc.
- * 
+ *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
  * the License at
- * 
+ *
  * http://www.apache.org/licenses/LICENSE-2.0
- * 
+ *
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
@@ -25,75 +25,209 @@ import android.util.Log;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
+/**
+ * Reads from a bulk IN endpoint by keeping several {@link UsbRequest}s in
+ * flight at all times.
+ * <p>
+ * Each in-flight request fills its own {@link Slot}. Completed slots are handed
+ * over by the {@link UsbRequestPool}'s wait thread and drained in the order
+ * they were queued. A slot is only queued again once it has been fully read, so
+ * the device always has somewhere to put data while the reader is busy.
+ */
 public class AcmAsyncInputStream extends InputStream {
 
   private static final boolean DEBUG = false;
   private static final String TAG = "AcmAsyncInputStream";
 
+  private static final int DEFAULT_REQUEST_COUNT = 8;
+
   private final UsbRequestPool usbRequestPool;
   private final UsbEndpoint endpoint;
+  private final Slot[] slots;
+  private final Slot[] completedSlots;
+  private final BlockingQueue<Slot> completionQueue;
+
+  private Slot currentSlot;
+  private long nextQueueSequence;
+  private long nextReadSequence;
+  private volatile boolean closed;
+
+  private static final class Slot {
+    private final ByteBuffer buffer;
+    private long sequence;
+    private UsbRequest request;
+
+    private Slot(int capacity) {
+      buffer = ByteBuffer.allocateDirect(capacity);
+    }
+  }
+
+  /**
+   * Marks the end of the stream in the completion queue.
+   */
+  private static final Slot CLOSED = new Slot(0);
 
   public AcmAsyncInputStream(UsbRequestPool usbRequestPool, UsbEndpoint endpoint) {
+    this(usbRequestPool, endpoint, DEFAULT_REQUEST_COUNT, endpoint.getMaxPacketSize());
+  }
+
+  /**
+   * @param usbRequestPool
+   *          the pool to take requests from, the endpoint must not have been
+   *          added to it yet
+   * @param endpoint
+   *          the bulk IN endpoint to read from
+   * @param requestCount
+   *          the number of requests to keep in flight
+   * @param bufferSize
+   *          the size of the buffer used by each request
+   */
+  public AcmAsyncInputStream(UsbRequestPool usbRequestPool, UsbEndpoint endpoint,
+      int requestCount, int bufferSize) {
     Preconditions.checkArgument(endpoint.getDirection() == UsbConstants.USB_DIR_IN);
+    Preconditions.checkArgument(requestCount > 0);
+    Preconditions.checkArgument(bufferSize > 0);
     this.endpoint = endpoint;
     this.usbRequestPool = usbRequestPool;
+    slots = new Slot[requestCount];
+    completedSlots = new Slot[requestCount];
+    completionQueue = new LinkedBlockingQueue<Slot>();
+    closed = false;
+    usbRequestPool.addEndpoint(endpoint, new UsbRequestCallback() {
+      @Override
+      public void onRequestComplete(UsbRequest request) {
+        Slot slot = (Slot) request.getClientData();
+        if (slot != null) {
+          request.setClientData(null);
+          completionQueue.add(slot);
+        }
+      }
+    }, requestCount, 0);
+    for (int i = 0; i < requestCount; i++) {
+      slots[i] = new Slot(bufferSize);
+      if (!queue(slots[i])) {
+        throw new IllegalStateException("Failed to queue initial USB read requests.");
+      }
+    }
+  }
+
+  private boolean queue(Slot slot) {
+    UsbRequest request = usbRequestPool.poll(endpoint);
+    slot.buffer.clear();
+    slot.sequence = nextQueueSequence++;
+    slot.request = request;
+    request.setClientData(slot);
+    if (!request.queue(slot.buffer, slot.buffer.capacity())) {
+      request.setClientData(null);
+      slot.request = null;
+      usbRequestPool.recycle(endpoint, request);
+      Log.e(TAG, "IO error while queuing " + slot.buffer.capacity() + " bytes to be read.");
+      return false;
+    }
+    return true;
   }
 
   @Override
   public void close() throws IOException {
+    closed = true;
+    for (Slot slot : slots) {
+      UsbRequest request = slot.request;
+      if (request != null) {
+        request.cancel();
+      }
+    }
+    completionQueue.add(CLOSED);
     usbRequestPool.shutdown();
   }
 
   @Override
-  public int read(byte[] buffer, int offset, int count) throws IOException {
+  public synchronized int available() throws IOException {
+    return currentSlot == null ? 0 : currentSlot.buffer.remaining();
+  }
+
+  @Override
+  public synchronized int read(byte[] buffer, int offset, int count) throws IOException {
     Preconditions.checkNotNull(buffer);
     if (offset < 0 || count < 0 || offset + count > buffer.length) {
       throw new IndexOutOfBoundsException();
     }
+    if (count == 0) {
+      return 0;
+    }
+    if (DEBUG) {
+      Log.i(TAG, "Reading " + count + " bytes.");
+    }
     // NOTE(damonkohler): According to the InputStream.read() javadoc, we should
     // be able to return 0 when we didn't read anything. However, it also says
     // we should block until input is available. Blocking seems to be the
     // preferred behavior.
-    if (DEBUG) {
-      Log.i(TAG, "Reading " + count + " bytes.");
+    Slot slot = awaitData();
+    if (slot == null) {
+      return -1;
     }
-    int byteCount = 0;
-    while (byteCount == 0) {
-      UsbRequest request = usbRequestPool.poll(endpoint);
-      if (!request.queue(ByteBuffer.wrap(buffer, offset, count), count)) {
-        Log.e(TAG, "IO error while queuing " + count + " bytes to be read.");
-      }
-    }
-    if (byteCount < 0) {
-      throw new IOException("USB read failed.");
-    }
-    // System.arraycopy(slice, 0, buffer, offset, byteCount);
+    int byteCount = Math.min(count, slot.buffer.remaining());
+    slot.buffer.get(buffer, offset, byteCount);
     if (DEBUG) {
       Log.i(TAG, "Actually read " + byteCount + " bytes.");
-      // Log.i(TAG, "Slice: " + byteArrayToHexString(slice));
     }
     return byteCount;
   }
 
   @Override
-  public int read() throws IOException {
-    throw new UnsupportedOperationException();
+  public synchronized int read() throws IOException {
+    Slot slot = awaitData();
+    if (slot == null) {
+      return -1;
+    }
+    return slot.buffer.get() & 0xff;
   }
 
-  // TODO(damonkohler): Possibly move this to some common place?
-  private static String byteArrayToHexString(byte[] data) {
-    if (data == null) {
-      return "null";
-    }
-    if (data.length == 0) {
-      return "empty";
-    }
-    StringBuilder out = new StringBuilder(data.length * 5);
-    for (byte b : data) {
-      out.append(String.format("%02x", b));
+  /**
+   * Blocks until the next slot in sequence has unread bytes. Slots that have
+   * been drained are queued again on the way.
+   *
+   * @return the current slot or {@code null} if the stream has been closed
+   */
+  private Slot awaitData() throws IOException {
+    while (currentSlot == null || !currentSlot.buffer.hasRemaining()) {
+      if (currentSlot != null) {
+        Slot drainedSlot = currentSlot;
+        currentSlot = null;
+        if (!closed && !queue(drainedSlot)) {
+          throw new IOException("USB read failed.");
+        }
+      }
+      int index = (int) (nextReadSequence % completedSlots.length);
+      while (completedSlots[index] == null) {
+        if (closed) {
+          return null;
+        }
+        Slot slot;
+        try {
+          slot = completionQueue.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException();
+        }
+        if (slot == CLOSED) {
+          return null;
+        }
+        // Requests on the same endpoint should complete in order, but we don't
+        // rely on it.
+        completedSlots[(int) (slot.sequence % completedSlots.length)] = slot;
+      }
+      currentSlot = completedSlots[index];
+      completedSlots[index] = null;
+      currentSlot.request = null;
+      nextReadSequence++;
+      // UsbRequest leaves the position at the number of bytes received.
+      currentSlot.buffer.flip();
     }
-    return out.toString();
+    return currentSlot;
   }
 }
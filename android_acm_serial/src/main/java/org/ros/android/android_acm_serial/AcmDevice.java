@@ -45,7 +45,7 @@ public class AcmDevice {
   private final UsbDevice usbDevice;
   private final UsbInterface usbInterface;
   private final InputStream inputStream;
-  private final OutputStream outputStream;
+  private final AcmOutputStream outputStream;
   private final UsbRequestPool usbRequestPool;
 
   private static final Log log = LogFactory.getLog(AcmDevice.class);
@@ -73,7 +73,41 @@ public class AcmDevice {
   }
 
   public AcmDevice(UsbDeviceConnection usbDeviceConnection, UsbDevice usbDevice) {
+    this(usbDeviceConnection, usbDevice, 0);
+  }
+
+  public AcmDevice(UsbDeviceConnection usbDeviceConnection, UsbDevice usbDevice,
+      int inputRequestCount) {
+    this(usbDeviceConnection, usbDevice, inputRequestCount, UsbRequestPool.DEFAULT_REQUEST_COUNT);
+  }
+
+  /**
+   * @param inputRequestCount
+   *          the number of asynchronous read requests to keep in flight on the
+   *          incoming endpoint, or 0 to read with blocking bulk transfers
+   * @param outputRequestCount
+   *          the maximum number of write transfers in flight on the outgoing
+   *          endpoint
+   */
+  public AcmDevice(UsbDeviceConnection usbDeviceConnection, UsbDevice usbDevice,
+      int inputRequestCount, int outputRequestCount) {
+    this(usbDeviceConnection, usbDevice, inputRequestCount,
+        new AcmWriteOptions().setRequestCount(outputRequestCount));
+  }
+
+  /**
+   * @param inputRequestCount
+   *          the number of asynchronous read requests to keep in flight on the
+   *          incoming endpoint, or 0 to read with blocking bulk transfers
+   * @param writeOptions
+   *          how to write to the outgoing endpoint, e.g. whether small writes
+   *          are coalesced
+   */
+  public AcmDevice(UsbDeviceConnection usbDeviceConnection, UsbDevice usbDevice,
+      int inputRequestCount, AcmWriteOptions writeOptions) {
     Preconditions.checkNotNull(usbDeviceConnection);
+    Preconditions.checkArgument(inputRequestCount >= 0);
+    Preconditions.checkNotNull(writeOptions);
     this.usbDeviceConnection = usbDeviceConnection;
 
     // Go through all declared interfaces and automatically select the one that looks
@@ -93,11 +127,17 @@ public class AcmDevice {
     this.usbInterface = usbInterface;
     this.usbDevice = usbDevice;
     usbRequestPool = new UsbRequestPool(usbDeviceConnection);
-    usbRequestPool.addEndpoint(acmUsbEndpoints.getOutgoing(), null);
     usbRequestPool.start();
 
-    outputStream = new AcmOutputStream(usbRequestPool, acmUsbEndpoints.getOutgoing());
-    inputStream = new AcmInputStream(usbDeviceConnection, acmUsbEndpoints.getIncoming());
+    outputStream = new AcmOutputStream(usbRequestPool, acmUsbEndpoints.getOutgoing(), writeOptions);
+    if (inputRequestCount > 0) {
+      UsbEndpoint incoming = acmUsbEndpoints.getIncoming();
+      inputStream =
+          new AcmAsyncInputStream(usbRequestPool, incoming, inputRequestCount,
+              incoming.getMaxPacketSize());
+    } else {
+      inputStream = new AcmInputStream(usbDeviceConnection, acmUsbEndpoints.getIncoming());
+    }
   }
 
     /**
@@ -163,6 +203,16 @@ public class AcmDevice {
     return outputStream;
   }
 
+  /**
+   * Writes to the device without waiting for the transfer to complete.
+   *
+   * @see AcmOutputStream#writeAsync(byte[], int, int, AcmWriteCallback)
+   */
+  public AcmWriteFuture writeAsync(byte[] buffer, int offset, int count,
+      AcmWriteCallback callback) {
+    return outputStream.writeAsync(buffer, offset, count, callback);
+  }
+
   public void close() {
     usbDeviceConnection.releaseInterface(usbInterface);
     usbDeviceConnection.close();
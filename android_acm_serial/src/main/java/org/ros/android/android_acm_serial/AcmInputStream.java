@@ -25,6 +25,7 @@ import android.util.Log;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 public class AcmInputStream extends InputStream {
 
@@ -38,6 +39,8 @@ public class AcmInputStream extends InputStream {
   private final UsbDeviceConnection connection;
   private final UsbEndpoint endpoint;
 
+  private byte[] slice;
+
   public AcmInputStream(UsbDeviceConnection connection, UsbEndpoint endpoint) {
     Preconditions.checkArgument(endpoint.getDirection() == UsbConstants.USB_DIR_IN);
     this.connection = connection;
@@ -49,22 +52,68 @@ public class AcmInputStream extends InputStream {
   }
 
   @Override
-  public int read(byte[] buffer, int offset, int count) throws IOException {
+  public synchronized int read(byte[] buffer, int offset, int count) throws IOException {
     Preconditions.checkNotNull(buffer);
     if (offset < 0 || count < 0 || offset + count > buffer.length) {
       throw new IndexOutOfBoundsException();
     }
+    if (count == 0) {
+      return 0;
+    }
+    if (DEBUG) {
+      Log.i(TAG, "Reading " + count + " bytes.");
+    }
+    int byteCount;
+    if (offset == 0) {
+      // The caller's array can be handed to the transfer directly.
+      byteCount = bulkTransfer(buffer, count);
+    } else {
+      // UsbDeviceConnection.bulkTransfer() only accepts an offset since API
+      // level 18, so we have to go through our own buffer.
+      byte[] slice = getSlice(count);
+      byteCount = bulkTransfer(slice, count);
+      System.arraycopy(slice, 0, buffer, offset, byteCount);
+    }
+    if (DEBUG) {
+      Log.i(TAG, "Actually read " + byteCount + " bytes.");
+      Log.i(TAG, "Slice: " + byteArrayToHexString(buffer, offset, byteCount));
+    }
+    return byteCount;
+  }
+
+  /**
+   * Reads up to {@link ByteBuffer#remaining()} bytes into the buffer and
+   * advances its position accordingly. Heap buffers that start at the beginning
+   * of their backing array are filled without an intermediate copy.
+   *
+   * @return the number of bytes read, 0 only if the buffer has no space left
+   */
+  public synchronized int read(ByteBuffer buffer) throws IOException {
+    Preconditions.checkNotNull(buffer);
+    int count = buffer.remaining();
+    if (count == 0) {
+      return 0;
+    }
+    int byteCount;
+    if (buffer.hasArray() && buffer.arrayOffset() + buffer.position() == 0) {
+      byteCount = bulkTransfer(buffer.array(), count);
+      buffer.position(byteCount);
+    } else {
+      byte[] slice = getSlice(count);
+      byteCount = bulkTransfer(slice, count);
+      buffer.put(slice, 0, byteCount);
+    }
+    return byteCount;
+  }
+
+  private int bulkTransfer(byte[] buffer, int count) throws IOException {
     // NOTE(damonkohler): According to the InputStream.read() javadoc, we should
     // be able to return 0 when we didn't read anything. However, it also says
     // we should block until input is available. Blocking seems to be the
     // preferred behavior.
-    byte[] slice = new byte[count];
-    if (DEBUG) {
-      Log.i(TAG, "Reading " + count + " bytes.");
-    }
     int byteCount = 0;
     while (byteCount == 0) {
-      byteCount = connection.bulkTransfer(endpoint, slice, slice.length, TIMEOUT);
+      byteCount = connection.bulkTransfer(endpoint, buffer, count, TIMEOUT);
       if (DEBUG) {
         if (byteCount == 0) {
           Log.i(TAG, "bulkTransfer() returned 0, retrying.");
@@ -74,30 +123,35 @@ public class AcmInputStream extends InputStream {
     if (byteCount < 0) {
       throw new IOException("USB read failed.");
     }
-    System.arraycopy(slice, 0, buffer, offset, byteCount);
-    if (DEBUG) {
-      Log.i(TAG, "Actually read " + byteCount + " bytes.");
-      Log.i(TAG, "Slice: " + byteArrayToHexString(slice));
-    }
     return byteCount;
   }
 
+  /**
+   * @return a reusable buffer that holds at least {@code count} bytes
+   */
+  private byte[] getSlice(int count) {
+    if (slice == null || slice.length < count) {
+      slice = new byte[Math.max(count, endpoint.getMaxPacketSize())];
+    }
+    return slice;
+  }
+
   @Override
   public int read() throws IOException {
     throw new UnsupportedOperationException();
   }
 
   // TODO(damonkohler): Possibly move this to some common place?
-  private static String byteArrayToHexString(byte[] data) {
+  private static String byteArrayToHexString(byte[] data, int offset, int length) {
     if (data == null) {
       return "null";
     }
-    if (data.length == 0) {
+    if (length == 0) {
       return "empty";
     }
-    StringBuilder out = new StringBuilder(data.length * 5);
-    for (byte b : data) {
-      out.append(String.format("%02x", b));
+    StringBuilder out = new StringBuilder(length * 5);
+    for (int i = offset; i < offset + length; i++) {
+      out.append(String.format("%02x", data[i]));
     }
     return out.toString();
   }
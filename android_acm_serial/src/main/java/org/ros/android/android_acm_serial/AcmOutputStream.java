@@ -26,32 +26,144 @@ import android.util.Log;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Writes to a bulk OUT endpoint without blocking on the transfer.
+ * <p>
+ * Bytes are copied into the direct buffer attached to a pooled
+ * {@link UsbRequest}, so the caller may reuse its array as soon as a write
+ * returns. Writes block only when all of the endpoint's requests are in flight.
+ * <p>
+ * By default every write is submitted as its own transfer. In coalescing mode,
+ * small writes accumulate in the pending request's buffer and are submitted
+ * once at least one full packet is buffered, on {@link #flush()} or after the
+ * linger time has passed since the first unsent byte, whichever comes first.
+ * <p>
+ * {@link #writeAsync} bypasses coalescing and returns an {@link AcmWriteFuture}
+ * that completes when the device has accepted the data. The number of
+ * transfers in flight is bounded by the request count the stream was created
+ * with.
+ */
 public class AcmOutputStream extends OutputStream {
 
   private static final boolean DEBUG = false;
   private static final String TAG = "AcmOutputStream";
 
+  /**
+   * The size of the buffer attached to each request. Larger writes are split.
+   */
+  public static final int BUFFER_SIZE = 4096;
+
   private final UsbRequestPool usbRequestPool;
   private final UsbEndpoint endpoint;
+  private final boolean coalescing;
+  private final int packetSize;
+  private final long lingerMillis;
+  private final ScheduledExecutorService lingerExecutor;
+  private final Runnable lingerFlush;
+
+  private UsbRequest pendingRequest;
+  private ByteBuffer pendingBuffer;
+  private ScheduledFuture<?> lingerFuture;
 
   public AcmOutputStream(UsbRequestPool usbRequestPool, UsbEndpoint endpoint) {
+    this(usbRequestPool, endpoint, false, 0, null);
+  }
+
+  public AcmOutputStream(UsbRequestPool usbRequestPool, UsbEndpoint endpoint, boolean coalescing,
+      long lingerMillis, UsbRequestCallback callback) {
+    this(usbRequestPool, endpoint, UsbRequestPool.DEFAULT_REQUEST_COUNT, coalescing, lingerMillis,
+        callback);
+  }
+
+  public AcmOutputStream(UsbRequestPool usbRequestPool, UsbEndpoint endpoint,
+      AcmWriteOptions options) {
+    this(usbRequestPool, endpoint, options.getRequestCount(), options.isCoalescing(),
+        options.getLingerMillis(), options.getCallback());
+  }
+
+  /**
+   * @param usbRequestPool
+   *          the pool to take requests from, the endpoint must not have been
+   *          added to it yet
+   * @param endpoint
+   *          the bulk OUT endpoint to write to
+   * @param requestCount
+   *          the maximum number of transfers in flight, writes block when it is
+   *          reached
+   * @param coalescing
+   *          {@code true} to combine small writes into packet-sized transfers
+   * @param lingerMillis
+   *          how long buffered bytes may wait for more writes before they are
+   *          sent anyway, or 0 to only send them when a packet is full or on
+   *          {@link #flush()}
+   * @param callback
+   *          called on the {@link UsbRequestPool}'s wait thread each time a
+   *          transfer completes, may be {@code null}
+   */
+  public AcmOutputStream(UsbRequestPool usbRequestPool, UsbEndpoint endpoint,
+      int requestCount, boolean coalescing, long lingerMillis, final UsbRequestCallback callback) {
     Preconditions.checkArgument(endpoint.getDirection() == UsbConstants.USB_DIR_OUT);
+    Preconditions.checkArgument(lingerMillis >= 0);
     this.endpoint = endpoint;
     this.usbRequestPool = usbRequestPool;
+    this.coalescing = coalescing;
+    this.lingerMillis = lingerMillis;
+    packetSize = Math.min(endpoint.getMaxPacketSize(), BUFFER_SIZE);
+    usbRequestPool.addEndpoint(endpoint, new UsbRequestCallback() {
+      @Override
+      public void onRequestComplete(UsbRequest request) {
+        AcmWriteFuture future = (AcmWriteFuture) request.getClientData();
+        if (future != null) {
+          request.setClientData(null);
+          future.onTransferComplete();
+        }
+        if (callback != null) {
+          callback.onRequestComplete(request);
+        }
+      }
+    }, requestCount, BUFFER_SIZE);
+    if (coalescing && lingerMillis > 0) {
+      lingerExecutor = Executors.newSingleThreadScheduledExecutor();
+      lingerFlush = new Runnable() {
+        @Override
+        public void run() {
+          synchronized (AcmOutputStream.this) {
+            lingerFuture = null;
+            submitPending();
+          }
+        }
+      };
+    } else {
+      lingerExecutor = null;
+      lingerFlush = null;
+    }
   }
 
   @Override
-  public void close() throws IOException {
+  public synchronized void close() throws IOException {
+    submitPending();
+    if (lingerExecutor != null) {
+      lingerExecutor.shutdownNow();
+    }
     usbRequestPool.shutdown();
   }
 
+  /**
+   * Submits any bytes that are waiting to be coalesced. Does not wait for the
+   * transfer to complete.
+   */
   @Override
-  public void flush() throws IOException {
+  public synchronized void flush() throws IOException {
+    submitPending();
   }
 
   @Override
-  public void write(byte[] buffer, int offset, int count) {
+  public synchronized void write(byte[] buffer, int offset, int count) {
     Preconditions.checkNotNull(buffer);
     if (offset < 0 || count < 0 || offset + count > buffer.length) {
       throw new IndexOutOfBoundsException();
@@ -59,14 +171,126 @@ public class AcmOutputStream extends OutputStream {
     if (DEBUG) {
       Log.i(TAG, "Writing " + count + " bytes from offset " + offset + ".");
     }
-    UsbRequest request = usbRequestPool.poll(endpoint);
-    if (!request.queue(ByteBuffer.wrap(buffer, offset, count), count)) {
-      Log.e(TAG, "IO error while queuing " + count + " bytes to be written.");
+    while (count > 0) {
+      ByteBuffer requestBuffer = getPendingBuffer();
+      int length = Math.min(count, requestBuffer.remaining());
+      requestBuffer.put(buffer, offset, length);
+      offset += length;
+      count -= length;
+      if (!requestBuffer.hasRemaining()) {
+        submitPending();
+      }
     }
+    onWriteComplete();
   }
 
   @Override
-  public void write(int oneByte) throws IOException {
-    write(new byte[] { (byte) oneByte }, 0, 1);
+  public synchronized void write(int oneByte) throws IOException {
+    ByteBuffer requestBuffer = getPendingBuffer();
+    requestBuffer.put((byte) oneByte);
+    if (!requestBuffer.hasRemaining()) {
+      submitPending();
+    }
+    onWriteComplete();
+  }
+
+  /**
+   * Submits the bytes without waiting for the transfer to complete. Bytes
+   * buffered by earlier writes are submitted first. The caller may reuse the
+   * array as soon as this returns. Blocks while the maximum number of
+   * transfers is in flight.
+   *
+   * @param callback
+   *          called when the write completes, may be {@code null}
+   */
+  public synchronized AcmWriteFuture writeAsync(byte[] buffer, int offset, int count,
+      AcmWriteCallback callback) {
+    Preconditions.checkNotNull(buffer);
+    if (offset < 0 || count < 0 || offset + count > buffer.length) {
+      throw new IndexOutOfBoundsException();
+    }
+    submitPending();
+    if (count == 0) {
+      AcmWriteFuture future = new AcmWriteFuture(0, 1, callback);
+      future.onTransferComplete();
+      return future;
+    }
+    AcmWriteFuture future =
+        new AcmWriteFuture(count, (count + BUFFER_SIZE - 1) / BUFFER_SIZE, callback);
+    while (count > 0) {
+      ByteBuffer requestBuffer = getPendingBuffer();
+      int length = Math.min(count, requestBuffer.remaining());
+      requestBuffer.put(buffer, offset, length);
+      offset += length;
+      count -= length;
+      pendingRequest.setClientData(future);
+      if (!submitPending()) {
+        future.onTransferFailed(new IOException("USB write failed."));
+        break;
+      }
+    }
+    return future;
+  }
+
+  /**
+   * @return the number of transfers that have been submitted but have not
+   *         completed yet
+   */
+  public int getInFlightCount() {
+    return usbRequestPool.getUsbRequestQueue(endpoint).getInFlightCount();
+  }
+
+  private ByteBuffer getPendingBuffer() {
+    if (pendingRequest == null) {
+      pendingRequest = usbRequestPool.poll(endpoint);
+      pendingBuffer = usbRequestPool.getBuffer(endpoint, pendingRequest);
+      Preconditions.checkState(pendingBuffer != null, "Endpoint was added without buffers.");
+      pendingBuffer.clear();
+    }
+    return pendingBuffer;
+  }
+
+  private void onWriteComplete() {
+    if (pendingRequest == null) {
+      return;
+    }
+    if (!coalescing || pendingBuffer.position() >= packetSize) {
+      submitPending();
+    } else if (lingerExecutor != null && lingerFuture == null) {
+      lingerFuture = lingerExecutor.schedule(lingerFlush, lingerMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * @return {@code false} if the pending bytes could not be submitted
+   */
+  private boolean submitPending() {
+    if (lingerFuture != null) {
+      lingerFuture.cancel(false);
+      lingerFuture = null;
+    }
+    if (pendingRequest == null) {
+      return true;
+    }
+    UsbRequest request = pendingRequest;
+    ByteBuffer requestBuffer = pendingBuffer;
+    pendingRequest = null;
+    pendingBuffer = null;
+    requestBuffer.flip();
+    int count = requestBuffer.remaining();
+    if (count == 0) {
+      usbRequestPool.recycle(endpoint, request);
+      return true;
+    }
+    if (DEBUG) {
+      Log.i(TAG, "Submitting " + count + " bytes.");
+    }
+    if (!request.queue(requestBuffer, count)) {
+      request.setClientData(null);
+      usbRequestPool.recycle(endpoint, request);
+      Log.e(TAG, "IO error while queuing " + count + " bytes to be written.");
+      return false;
+    }
+    return true;
   }
 }
@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2026 The android_core contributors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.android.android_acm_serial;
+
+/**
+ * Notified once all the bytes of an asynchronous write have been transferred
+ * or the write has failed.
+ */
+public interface AcmWriteCallback {
+
+  /**
+   * Called on the thread that waits for USB request completions, so this must
+   * return quickly.
+   */
+  void onWriteComplete(AcmWriteFuture future);
+
+}
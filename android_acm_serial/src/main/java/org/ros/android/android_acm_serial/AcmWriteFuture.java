@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2026 The android_core contributors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.android.android_acm_serial;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The result of {@link AcmOutputStream#writeAsync}. Completes with the number
+ * of bytes written once every USB transfer that makes up the write has
+ * completed.
+ */
+public class AcmWriteFuture implements Future<Integer> {
+
+  private final int byteCount;
+  private final AcmWriteCallback callback;
+  private final long startNanos;
+  private final AtomicInteger remainingTransferCount;
+  private final AtomicBoolean done;
+  private final CountDownLatch latch;
+
+  private volatile long latencyNanos;
+  private volatile IOException exception;
+
+  AcmWriteFuture(int byteCount, int transferCount, AcmWriteCallback callback) {
+    this.byteCount = byteCount;
+    this.callback = callback;
+    startNanos = System.nanoTime();
+    remainingTransferCount = new AtomicInteger(transferCount);
+    done = new AtomicBoolean();
+    latch = new CountDownLatch(1);
+  }
+
+  void onTransferComplete() {
+    if (remainingTransferCount.decrementAndGet() == 0) {
+      complete(null);
+    }
+  }
+
+  void onTransferFailed(IOException exception) {
+    complete(exception);
+  }
+
+  private void complete(IOException exception) {
+    if (!done.compareAndSet(false, true)) {
+      return;
+    }
+    latencyNanos = System.nanoTime() - startNanos;
+    this.exception = exception;
+    latch.countDown();
+    if (callback != null) {
+      callback.onWriteComplete(this);
+    }
+  }
+
+  /**
+   * @return the time from the call to {@link AcmOutputStream#writeAsync} until
+   *         the last transfer completed, or -1 if the write is still in
+   *         progress
+   */
+  public long getLatency(TimeUnit unit) {
+    if (!isDone()) {
+      return -1;
+    }
+    return unit.convert(latencyNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @return the reason the write failed or {@code null}
+   */
+  public IOException getException() {
+    return exception;
+  }
+
+  /**
+   * In-flight USB transfers can't be taken back.
+   */
+  @Override
+  public boolean cancel(boolean mayInterruptIfRunning) {
+    return false;
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return false;
+  }
+
+  @Override
+  public boolean isDone() {
+    return latch.getCount() == 0;
+  }
+
+  @Override
+  public Integer get() throws InterruptedException, ExecutionException {
+    latch.await();
+    return getResult();
+  }
+
+  @Override
+  public Integer get(long timeout, TimeUnit unit) throws InterruptedException,
+      ExecutionException, TimeoutException {
+    if (!latch.await(timeout, unit)) {
+      throw new TimeoutException();
+    }
+    return getResult();
+  }
+
+  private Integer getResult() throws ExecutionException {
+    if (exception != null) {
+      throw new ExecutionException(exception);
+    }
+    return byteCount;
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2026 The android_core contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.android.android_acm_serial;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Configures how an {@link AcmDevice} writes to its outgoing endpoint.
+ * <p>
+ * The defaults submit every write as its own transfer with up to
+ * {@link #DEFAULT_REQUEST_COUNT} transfers in flight.
+ *
+ * @see AcmOutputStream
+ */
+public class AcmWriteOptions {
+
+  /**
+   * The number of write transfers in flight unless specified otherwise.
+   */
+  public static final int DEFAULT_REQUEST_COUNT = UsbRequestPool.DEFAULT_REQUEST_COUNT;
+
+  private int requestCount;
+  private boolean coalescing;
+  private long lingerMillis;
+  private UsbRequestCallback callback;
+
+  public AcmWriteOptions() {
+    requestCount = DEFAULT_REQUEST_COUNT;
+    coalescing = false;
+    lingerMillis = 0;
+    callback = null;
+  }
+
+  /**
+   * @param requestCount
+   *          the maximum number of write transfers in flight, writes block when
+   *          it is reached
+   */
+  public AcmWriteOptions setRequestCount(int requestCount) {
+    Preconditions.checkArgument(requestCount > 0);
+    this.requestCount = requestCount;
+    return this;
+  }
+
+  /**
+   * @param coalescing
+   *          {@code true} to combine small writes into packet-sized transfers
+   */
+  public AcmWriteOptions setCoalescing(boolean coalescing) {
+    this.coalescing = coalescing;
+    return this;
+  }
+
+  /**
+   * Only used in coalescing mode.
+   *
+   * @param lingerMillis
+   *          how long buffered bytes may wait for more writes before they are
+   *          sent anyway, or 0 to only send them when a packet is full or on
+   *          {@link AcmOutputStream#flush()}
+   */
+  public AcmWriteOptions setLingerMillis(long lingerMillis) {
+    Preconditions.checkArgument(lingerMillis >= 0);
+    this.lingerMillis = lingerMillis;
+    return this;
+  }
+
+  /**
+   * @param callback
+   *          called on the thread that waits for USB request completions each
+   *          time a write transfer completes, may be {@code null}
+   */
+  public AcmWriteOptions setCallback(UsbRequestCallback callback) {
+    this.callback = callback;
+    return this;
+  }
+
+  public int getRequestCount() {
+    return requestCount;
+  }
+
+  public boolean isCoalescing() {
+    return coalescing;
+  }
+
+  public long getLingerMillis() {
+    return lingerMillis;
+  }
+
+  public UsbRequestCallback getCallback() {
+    return callback;
+  }
+}
@@ -24,13 +24,20 @@ import android.hardware.usb.UsbEndpoint;
 import android.hardware.usb.UsbRequest;
 import android.util.Log;
 
+import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 class UsbRequestPool {
 
   private static final boolean DEBUG = false;
   private static final String TAG = "UsbRequestPool";
 
+  /**
+   * The number of requests available per endpoint unless specified otherwise.
+   */
+  public static final int DEFAULT_REQUEST_COUNT = 16;
+
   private final UsbDeviceConnection connection;
   private final Map<UsbEndpoint, UsbRequestQueue> usbRequestQueues;
   private final RequestWaitThread requestWaitThread;
@@ -76,15 +83,58 @@ class UsbRequestPool {
   }
 
   public void addEndpoint(UsbEndpoint endpoint, UsbRequestCallback callback) {
-    usbRequestQueues.put(endpoint, new UsbRequestQueue(connection, endpoint, callback));
+    addEndpoint(endpoint, callback, DEFAULT_REQUEST_COUNT, 0);
+  }
+
+  /**
+   * @param requestCount
+   *          the maximum number of requests that can be in flight on the
+   *          endpoint at once
+   * @param bufferSize
+   *          the size of the direct buffer attached to each request, or 0 if
+   *          the caller supplies its own buffers
+   */
+  public void addEndpoint(UsbEndpoint endpoint, UsbRequestCallback callback, int requestCount,
+      int bufferSize) {
+    usbRequestQueues.put(endpoint, new UsbRequestQueue(connection, endpoint, callback,
+        requestCount, bufferSize));
   }
 
+  /**
+   * Blocks until a request for the endpoint is available.
+   */
   public UsbRequest poll(UsbEndpoint endpoint) {
+    return getUsbRequestQueue(endpoint).poll();
+  }
+
+  /**
+   * @return a request or {@code null} if all requests for the endpoint stayed
+   *         in flight for the specified time
+   */
+  public UsbRequest poll(UsbEndpoint endpoint, long timeout, TimeUnit unit)
+      throws InterruptedException {
+    return getUsbRequestQueue(endpoint).poll(timeout, unit);
+  }
+
+  /**
+   * Returns a request that was polled but could not be queued. Requests that
+   * were queued are recycled automatically once they complete.
+   */
+  public void recycle(UsbEndpoint endpoint, UsbRequest request) {
+    getUsbRequestQueue(endpoint).recycle(request);
+  }
+
+  /**
+   * @return the direct buffer attached to a request polled from this pool
+   */
+  public ByteBuffer getBuffer(UsbEndpoint endpoint, UsbRequest request) {
+    return getUsbRequestQueue(endpoint).getBuffer(request);
+  }
+
+  public UsbRequestQueue getUsbRequestQueue(UsbEndpoint endpoint) {
     Preconditions.checkArgument(usbRequestQueues.containsKey(endpoint),
         "Call addEndpoint() before the first call to poll().");
-    UsbRequestQueue queue = usbRequestQueues.get(endpoint);
-    UsbRequest request = queue.poll();
-    return request;
+    return usbRequestQueues.get(endpoint);
   }
 
   public void start() {
@@ -1,12 +1,12 @@
 /*
  * Copyright (C) 2011 Google Inc.
- * 
+ *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
  * the License at
- * 
+ *
  * http://www.apache.org/licenses/LICENSE-2.0
- * 
+ *
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
@@ -16,16 +16,30 @@
 
 package org.ros.android.android_acm_serial;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
 import android.hardware.usb.UsbDeviceConnection;
 import android.hardware.usb.UsbEndpoint;
 import android.hardware.usb.UsbRequest;
 import android.util.Log;
 import org.ros.exception.RosRuntimeException;
 
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * A bounded pool of {@link UsbRequest}s for a single endpoint.
+ * <p>
+ * All requests are created and initialized up front. Each request can
+ * optionally own a direct {@link ByteBuffer} that stays attached to it for its
+ * whole life, so that queuing a transfer never allocates. When all requests are
+ * in flight, {@link #poll()} blocks until one completes.
+ *
  * @author damonkohler@google.com (Damon Kohler)
  */
 class UsbRequestQueue {
@@ -33,17 +47,40 @@ class UsbRequestQueue {
   private static final boolean DEBUG = false;
   private static final String TAG = "UsbRequestQueue";
 
-  private final UsbDeviceConnection connection;
-  private final UsbEndpoint endpoint;
   private final UsbRequestCallback callback;
-  private final Queue<UsbRequest> queue;
+  private final int capacity;
+  private final BlockingQueue<UsbRequest> queue;
+  private final Map<UsbRequest, ByteBuffer> buffers;
+  private final AtomicLong hitCount;
+  private final AtomicLong missCount;
 
+  /**
+   * @param capacity
+   *          the number of requests in the pool
+   * @param bufferSize
+   *          the size of the direct buffer attached to each request, or 0 for
+   *          none
+   */
   public UsbRequestQueue(UsbDeviceConnection connection, UsbEndpoint endpoint,
-      UsbRequestCallback callback) {
-    this.connection = connection;
-    this.endpoint = endpoint;
+      UsbRequestCallback callback, int capacity, int bufferSize) {
+    Preconditions.checkArgument(capacity > 0);
+    Preconditions.checkArgument(bufferSize >= 0);
     this.callback = callback;
-    queue = new ConcurrentLinkedQueue<UsbRequest>();
+    this.capacity = capacity;
+    queue = new ArrayBlockingQueue<UsbRequest>(capacity);
+    buffers = Maps.newIdentityHashMap();
+    hitCount = new AtomicLong();
+    missCount = new AtomicLong();
+    for (int i = 0; i < capacity; i++) {
+      UsbRequest request = new UsbRequest();
+      if (!request.initialize(connection, endpoint)) {
+        throw new RosRuntimeException("Failed to open UsbRequest.");
+      }
+      if (bufferSize > 0) {
+        buffers.put(request, ByteBuffer.allocateDirect(bufferSize));
+      }
+      queue.add(request);
+    }
   }
 
   public void add(UsbRequest request) {
@@ -56,14 +93,74 @@ class UsbRequestQueue {
     }
   }
 
+  /**
+   * Returns a request that was polled but never queued successfully.
+   */
+  public void recycle(UsbRequest request) {
+    queue.add(request);
+  }
+
+  /**
+   * Blocks until a request is available.
+   */
   public UsbRequest poll() {
     UsbRequest request = queue.poll();
-    if (request == null) {
-      request = new UsbRequest();
-      if (!request.initialize(connection, endpoint)) {
-        throw new RosRuntimeException("Failed to open UsbRequest.");
-      }
+    if (request != null) {
+      hitCount.incrementAndGet();
+      return request;
+    }
+    missCount.incrementAndGet();
+    try {
+      return queue.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RosRuntimeException(e);
     }
-    return request;
   }
-}
\ No newline at end of file
+
+  /**
+   * Waits up to the specified time for a request to become available. A
+   * timeout of 0 fails fast.
+   *
+   * @return a request or {@code null} if all requests stayed in flight
+   */
+  public UsbRequest poll(long timeout, TimeUnit unit) throws InterruptedException {
+    UsbRequest request = queue.poll();
+    if (request != null) {
+      hitCount.incrementAndGet();
+      return request;
+    }
+    missCount.incrementAndGet();
+    return queue.poll(timeout, unit);
+  }
+
+  /**
+   * @return the direct buffer attached to the request or {@code null} if
+   *         requests on this endpoint don't have buffers
+   */
+  public ByteBuffer getBuffer(UsbRequest request) {
+    return buffers.get(request);
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return the number of times a request was available immediately
+   */
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /**
+   * @return the number of times all requests were in flight
+   */
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  public int getInFlightCount() {
+    return capacity - queue.size();
+  }
+}
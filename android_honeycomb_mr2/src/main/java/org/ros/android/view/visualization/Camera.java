@@ -51,6 +51,7 @@ public class Camera {
   private static final float MAXIMUM_ZOOM = 500;
 
   private final FrameTransformTree frameTransformTree;
+  private final RenderScheduler renderScheduler;
   private final Object mutex;
 
   private Viewport viewport;
@@ -65,11 +66,31 @@ public class Camera {
   private FrameName frame;
 
   public Camera(FrameTransformTree frameTransformTree) {
+    this(frameTransformTree, null);
+  }
+
+  /**
+   * @param renderScheduler
+   *          scheduler to request a new frame from whenever the camera moves,
+   *          or {@code null} if the view is redrawn continuously
+   */
+  public Camera(FrameTransformTree frameTransformTree, RenderScheduler renderScheduler) {
     this.frameTransformTree = frameTransformTree;
+    this.renderScheduler = renderScheduler;
     mutex = new Object();
     resetTransform();
   }
 
+  /**
+   * Requests a new frame of the view, e.g. because the data of a layer
+   * changed. Changes of the camera itself request frames on their own.
+   */
+  public void requestRender() {
+    if (renderScheduler != null) {
+      renderScheduler.requestRender();
+    }
+  }
+
   private void resetTransform() {
     // Rotate coordinate system to match ROS standard (x is forward, y is left).
     transform = Transform.zRotation(Math.PI / 2).scale(DEFAULT_ZOOM);
@@ -105,6 +126,7 @@ public class Camera {
     synchronized (mutex) {
       transform = Transform.translation(deltaX, deltaY, 0).multiply(transform);
     }
+    requestRender();
   }
 
   /**
@@ -124,6 +146,7 @@ public class Camera {
           transform.multiply(focus).multiply(Transform.zRotation(deltaAngle))
               .multiply(focus.invert());
     }
+    requestRender();
   }
 
   /**
@@ -142,6 +165,7 @@ public class Camera {
       double zoom = RosMath.clamp(getZoom() * factor, MINIMUM_ZOOM, MAXIMUM_ZOOM) / getZoom();
       transform = transform.multiply(focus).scale(zoom).multiply(focus.invert());
     }
+    requestRender();
   }
 
   /**
@@ -186,6 +210,7 @@ public class Camera {
       }
       this.frame = frame;
     }
+    requestRender();
   }
 
   /**
@@ -209,6 +234,7 @@ public class Camera {
       resetTransform();
       transform = transform.scale(zoom / getZoom());
     }
+    requestRender();
   }
 
   /**
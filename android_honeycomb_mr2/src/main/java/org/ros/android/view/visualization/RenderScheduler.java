@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2026 The android_core contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.android.view.visualization;
+
+import com.google.common.base.Preconditions;
+
+import android.opengl.GLSurfaceView;
+
+/**
+ * Redraws a {@link GLSurfaceView} in {@link GLSurfaceView#RENDERMODE_WHEN_DIRTY}
+ * mode only when something changed.
+ * <p>
+ * Any number of requests made before the next frame is drawn result in a
+ * single frame. With a maximum frame rate set, a request that comes too soon
+ * after the last frame is delayed.
+ */
+public class RenderScheduler {
+
+  private final GLSurfaceView view;
+  private final Object mutex;
+  private final Runnable delayedRequest;
+
+  private long minimumFrameInterval;
+  private long lastFrameTime;
+  private boolean pending;
+  private long requestCount;
+  private long frameCount;
+
+  public RenderScheduler(GLSurfaceView view) {
+    this.view = view;
+    mutex = new Object();
+    delayedRequest = new Runnable() {
+      @Override
+      public void run() {
+        RenderScheduler.this.view.requestRender();
+      }
+    };
+  }
+
+  /**
+   * @param framesPerSecond
+   *          maximum number of frames drawn per second, or 0 for no limit
+   */
+  public void setMaximumFrameRate(float framesPerSecond) {
+    Preconditions.checkArgument(framesPerSecond >= 0);
+    synchronized (mutex) {
+      minimumFrameInterval = framesPerSecond > 0 ? (long) (1e9 / framesPerSecond) : 0;
+    }
+  }
+
+  /**
+   * Requests a new frame because a layer or the camera changed. May be called
+   * from any thread.
+   */
+  public void requestRender() {
+    long delay;
+    synchronized (mutex) {
+      requestCount++;
+      if (pending) {
+        return;
+      }
+      pending = true;
+      delay = lastFrameTime + minimumFrameInterval - System.nanoTime();
+    }
+    if (delay > 0) {
+      view.postDelayed(delayedRequest, delay / 1000000 + 1);
+    } else {
+      view.requestRender();
+    }
+  }
+
+  /**
+   * Called by the renderer before it draws a frame. Requests made while the
+   * frame is drawn result in another frame.
+   */
+  public void onDrawFrame() {
+    synchronized (mutex) {
+      pending = false;
+      frameCount++;
+      lastFrameTime = System.nanoTime();
+    }
+  }
+
+  /**
+   * @return number of render requests so far
+   */
+  public long getRequestCount() {
+    synchronized (mutex) {
+      return requestCount;
+    }
+  }
+
+  /**
+   * @return number of frames drawn so far
+   */
+  public long getFrameCount() {
+    synchronized (mutex) {
+      return frameCount;
+    }
+  }
+
+  /**
+   * @return number of render requests that didn't need a frame of their own
+   *         because one was already requested
+   */
+  public long getSkippedRequestCount() {
+    synchronized (mutex) {
+      return Math.max(0, requestCount - frameCount);
+    }
+  }
+}
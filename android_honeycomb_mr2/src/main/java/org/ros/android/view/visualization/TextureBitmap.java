@@ -24,6 +24,7 @@ import org.jboss.netty.buffer.ChannelBuffer;
 import org.ros.rosjava_geometry.Transform;
 
 import java.nio.FloatBuffer;
+import java.util.Arrays;
 
 import javax.microedition.khronos.opengles.GL10;
 
@@ -58,6 +59,15 @@ public class TextureBitmap implements OpenGlDrawable {
   private double scaledHeight;
   private boolean reload;
 
+  /**
+   * Bounds of the region of {@link #bitmapFront} that changed since the last
+   * upload. The region is empty if {@code dirtyRight <= dirtyLeft}.
+   */
+  private int dirtyLeft;
+  private int dirtyTop;
+  private int dirtyRight;
+  private int dirtyBottom;
+
   public TextureBitmap() {
     pixels = new int[TEXTURE_HEIGHT * TEXTURE_STRIDE];
     surfaceVertices = Vertices.toFloatBuffer(new float[] {
@@ -83,7 +93,17 @@ public class TextureBitmap implements OpenGlDrawable {
   public void updateFromPixelArray(int[] pixels, int stride, float resolution, Transform origin,
       int fillColor) {
     Preconditions.checkArgument(pixels.length % stride == 0);
-    int height = pixels.length / stride;
+    updateFromPixelArray(pixels, stride, pixels.length / stride, resolution, origin, fillColor);
+  }
+
+  /**
+   * Same as {@link #updateFromPixelArray(int[], int, float, Transform, int)},
+   * but only the first {@code stride * height} pixels are used. This allows
+   * to reuse a larger array.
+   */
+  public void updateFromPixelArray(int[] pixels, int stride, int height, float resolution,
+      Transform origin, int fillColor) {
+    Preconditions.checkArgument(stride * height <= pixels.length);
     for (int y = 0; y < TEXTURE_HEIGHT; y++) {
       for (int x = 0; x < TEXTURE_STRIDE; x++) {
         // If the pixel is within the bounds of the specified pixel array then
@@ -120,16 +140,101 @@ public class TextureBitmap implements OpenGlDrawable {
     update(origin, stride, resolution, fillColor);
   }
 
+  /**
+   * Replaces a rectangle of the current texture in place. Unlike a full
+   * update, only the changed rectangle is uploaded on the next draw.
+   * 
+   * @param pixels
+   *          ARGB pixels of the rectangle, row by row
+   * @param x
+   *          left column of the rectangle in the texture
+   * @param y
+   *          top row of the rectangle in the texture
+   * @param width
+   *          width of the rectangle
+   * @param height
+   *          height of the rectangle
+   */
+  public void updateRegion(int[] pixels, int x, int y, int width, int height) {
+    Preconditions.checkArgument(x >= 0 && y >= 0);
+    Preconditions.checkArgument(x + width <= TEXTURE_STRIDE && y + height <= TEXTURE_HEIGHT);
+    Preconditions.checkArgument(pixels.length >= width * height);
+    if (width <= 0 || height <= 0) {
+      return;
+    }
+    synchronized (mutex) {
+      bitmapFront.setPixels(pixels, 0, width, x, y, width, height);
+      if (reload) {
+        // The whole bitmap is uploaded anyway.
+        return;
+      }
+      if (dirtyRight <= dirtyLeft) {
+        dirtyLeft = x;
+        dirtyTop = y;
+        dirtyRight = x + width;
+        dirtyBottom = y + height;
+      } else {
+        dirtyLeft = Math.min(dirtyLeft, x);
+        dirtyTop = Math.min(dirtyTop, y);
+        dirtyRight = Math.max(dirtyRight, x + width);
+        dirtyBottom = Math.max(dirtyBottom, y + height);
+      }
+    }
+  }
+
+  /**
+   * Maps each byte of the buffer through the palette right into the texture
+   * pixels.
+   * 
+   * @param indices
+   *          palette indices, row by row
+   * @param stride
+   *          number of indices in a row
+   * @param palette
+   *          256 ARGB colors indexed by the unsigned byte value
+   */
+  public void updateFromIndexBuffer(ChannelBuffer indices, int stride, int[] palette,
+      float resolution, Transform origin, int fillColor) {
+    Preconditions.checkNotNull(indices);
+    Preconditions.checkNotNull(origin);
+    Preconditions.checkArgument(palette.length == 256);
+    Preconditions.checkArgument(0 < stride && stride <= TEXTURE_STRIDE);
+    int height = Math.min(indices.readableBytes() / stride, TEXTURE_HEIGHT);
+    if (indices.hasArray()) {
+      byte[] array = indices.array();
+      int sourceIndex = indices.arrayOffset() + indices.readerIndex();
+      for (int y = 0; y < height; y++) {
+        int targetIndex = y * TEXTURE_STRIDE;
+        for (int x = 0; x < stride; x++) {
+          this.pixels[targetIndex + x] = palette[array[sourceIndex++] & 0xff];
+        }
+        Arrays.fill(this.pixels, targetIndex + stride, targetIndex + TEXTURE_STRIDE, fillColor);
+      }
+      indices.skipBytes(height * stride);
+    } else {
+      for (int y = 0; y < height; y++) {
+        int targetIndex = y * TEXTURE_STRIDE;
+        for (int x = 0; x < stride; x++) {
+          this.pixels[targetIndex + x] = palette[indices.readByte() & 0xff];
+        }
+        Arrays.fill(this.pixels, targetIndex + stride, targetIndex + TEXTURE_STRIDE, fillColor);
+      }
+    }
+    Arrays.fill(this.pixels, height * TEXTURE_STRIDE, this.pixels.length, fillColor);
+    update(origin, stride, resolution, fillColor);
+  }
+
   public void clearHandle() {
     handle = null;
   }
 
   private void update(Transform origin, int stride, float resolution, int fillColor) {
-    this.origin = origin;
-    scaledWidth = TEXTURE_STRIDE * resolution;
-    scaledHeight = TEXTURE_HEIGHT * resolution;
     bitmapBack.setPixels(pixels, 0, TEXTURE_STRIDE, 0, 0, TEXTURE_STRIDE, TEXTURE_HEIGHT);
     synchronized (mutex) {
+      // The placement changes together with the bitmap it belongs to.
+      this.origin = origin;
+      scaledWidth = TEXTURE_STRIDE * resolution;
+      scaledHeight = TEXTURE_HEIGHT * resolution;
       Bitmap tmp = bitmapFront;
       bitmapFront = bitmapBack;
       bitmapBack = tmp;
@@ -150,17 +255,34 @@ public class TextureBitmap implements OpenGlDrawable {
       if (reload) {
         GLUtils.texImage2D(GL10.GL_TEXTURE_2D, 0, bitmapFront, 0);
         reload = false;
+      } else if (dirtyRight > dirtyLeft) {
+        Bitmap region =
+            Bitmap.createBitmap(bitmapFront, dirtyLeft, dirtyTop, dirtyRight - dirtyLeft,
+                dirtyBottom - dirtyTop);
+        GLUtils.texSubImage2D(GL10.GL_TEXTURE_2D, 0, dirtyLeft, dirtyTop, region);
+        if (region != bitmapFront) {
+          region.recycle();
+        }
       }
+      dirtyRight = dirtyLeft;
     }
   }
 
   @Override
   public void draw(GL10 gl) {
+    Transform origin;
+    float scaledWidth;
+    float scaledHeight;
+    synchronized (mutex) {
+      origin = this.origin;
+      scaledWidth = (float) this.scaledWidth;
+      scaledHeight = (float) this.scaledHeight;
+    }
     gl.glEnable(GL10.GL_TEXTURE_2D);
     bind(gl);
     gl.glPushMatrix();
     OpenGlTransform.apply(gl, origin);
-    gl.glScalef((float) scaledWidth, (float) scaledHeight, 1.0f);
+    gl.glScalef(scaledWidth, scaledHeight, 1.0f);
     gl.glColor4f(1.0f, 1.0f, 1.0f, 1.0f);
     gl.glEnableClientState(GL10.GL_VERTEX_ARRAY);
     gl.glEnableClientState(GL10.GL_TEXTURE_COORD_ARRAY);
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2026 The android_core contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.android.view.visualization;
+
+import com.google.common.base.Preconditions;
+
+import java.nio.FloatBuffer;
+
+import javax.microedition.khronos.opengles.GL10;
+import javax.microedition.khronos.opengles.GL11;
+
+/**
+ * Vertices (x, y, z) kept in a vertex buffer object on the GPU.
+ * <p>
+ * The vertices may be replaced from any thread. They are uploaded once on the
+ * next draw and drawn from GPU memory after that. A copy is kept in client
+ * memory, so the buffer is uploaded again if the OpenGL context changes. If
+ * the context doesn't support OpenGL ES 1.1, the vertices are drawn from
+ * client memory.
+ */
+public class VertexBuffer {
+
+  private static final int VERTEX_SIZE = 3;
+  private static final int FLOAT_BYTE_SIZE = Float.SIZE / 8;
+
+  private final Object mutex;
+
+  private FloatBuffer vertices;
+  private int vertexCount;
+  private boolean dirty;
+  private GL10 previousGl;
+  private int[] handle;
+
+  public VertexBuffer() {
+    mutex = new Object();
+    vertices = Vertices.allocateBuffer(0);
+    vertexCount = 0;
+    dirty = false;
+  }
+
+  /**
+   * Replaces the vertices.
+   *
+   * @param vertices
+   *          x, y and z of each vertex
+   * @param length
+   *          number of floats to use from the array
+   */
+  public void set(float[] vertices, int length) {
+    Preconditions.checkArgument(length % VERTEX_SIZE == 0);
+    Preconditions.checkArgument(length <= vertices.length);
+    synchronized (mutex) {
+      if (this.vertices.capacity() < length) {
+        this.vertices = Vertices.allocateBuffer(length);
+      }
+      this.vertices.clear();
+      this.vertices.put(vertices, 0, length);
+      this.vertices.flip();
+      vertexCount = length / VERTEX_SIZE;
+      dirty = true;
+    }
+  }
+
+  public int getVertexCount() {
+    synchronized (mutex) {
+      return vertexCount;
+    }
+  }
+
+  /**
+   * Draws the vertices starting from {@code first}. The color and the point
+   * size have to be applied before.
+   *
+   * @param mode
+   *          primitive type, e.g. {@link GL10#GL_POINTS}
+   * @param first
+   *          index of the first vertex to draw
+   */
+  public void draw(GL10 gl, int mode, int first) {
+    synchronized (mutex) {
+      int count = vertexCount - first;
+      if (count <= 0) {
+        return;
+      }
+      gl.glEnableClientState(GL10.GL_VERTEX_ARRAY);
+      if (gl instanceof GL11) {
+        GL11 gl11 = (GL11) gl;
+        bind(gl11);
+        gl11.glVertexPointer(VERTEX_SIZE, GL10.GL_FLOAT, 0, 0);
+        gl11.glDrawArrays(mode, first, count);
+        gl11.glBindBuffer(GL11.GL_ARRAY_BUFFER, 0);
+      } else {
+        gl.glVertexPointer(VERTEX_SIZE, GL10.GL_FLOAT, 0, vertices);
+        gl.glDrawArrays(mode, first, count);
+      }
+      gl.glDisableClientState(GL10.GL_VERTEX_ARRAY);
+    }
+  }
+
+  private void bind(GL11 gl) {
+    if (previousGl != gl) {
+      // The buffer was lost together with the previous context.
+      handle = null;
+      previousGl = gl;
+    }
+    if (handle == null) {
+      handle = new int[1];
+      gl.glGenBuffers(1, handle, 0);
+      dirty = true;
+    }
+    gl.glBindBuffer(GL11.GL_ARRAY_BUFFER, handle[0]);
+    if (dirty) {
+      // Laser scans and paths are replaced with every message.
+      gl.glBufferData(GL11.GL_ARRAY_BUFFER, vertices.limit() * FLOAT_BYTE_SIZE, vertices,
+          GL11.GL_DYNAMIC_DRAW);
+      dirty = false;
+    }
+  }
+}
@@ -37,6 +37,12 @@ import java.util.List;
 import java.util.concurrent.CountDownLatch;
 
 /**
+ * Renders layers in {@link #RENDERMODE_WHEN_DIRTY} mode. A frame is drawn when
+ * the camera moves, a transform arrives or a layer calls
+ * {@link Camera#requestRender()} after its data changed. See
+ * {@link #getRenderScheduler()} to limit the frame rate and for frame
+ * counters.
+ * 
  * @author damonkohler@google.com (Damon Kohler)
  * @author moesenle@google.com (Lorenz Moesenlechner)
  */
@@ -45,8 +51,10 @@ public class VisualizationView extends GLSurfaceView implements NodeMain {
   private static final boolean DEBUG = false;
 
   private final FrameTransformTree frameTransformTree = new FrameTransformTree();
-  private final Camera camera = new Camera(frameTransformTree);
-  private final XYOrthographicRenderer renderer = new XYOrthographicRenderer(camera);
+  private final RenderScheduler renderScheduler = new RenderScheduler(this);
+  private final Camera camera = new Camera(frameTransformTree, renderScheduler);
+  private final XYOrthographicRenderer renderer = new XYOrthographicRenderer(camera,
+      renderScheduler);
   private final List<Layer> layers = Lists.newArrayList();
   private final CountDownLatch attachedToWindow = new CountDownLatch(1);
 
@@ -70,6 +78,7 @@ public class VisualizationView extends GLSurfaceView implements NodeMain {
     setEGLConfigChooser(8, 8, 8, 8, 0, 0);
     getHolder().setFormat(PixelFormat.TRANSLUCENT);
     setRenderer(renderer);
+    setRenderMode(RENDERMODE_WHEN_DIRTY);
   }
 
   @Override
@@ -95,6 +104,10 @@ public class VisualizationView extends GLSurfaceView implements NodeMain {
     return camera;
   }
 
+  public RenderScheduler getRenderScheduler() {
+    return renderScheduler;
+  }
+
   /**
    * Adds a new layer at the end of the layers collection. The new layer will be
    * drawn last, i.e. on top of all other layers.
@@ -104,15 +117,18 @@ public class VisualizationView extends GLSurfaceView implements NodeMain {
    */
   public void addLayer(Layer layer) {
     layers.add(layer);
+    renderScheduler.requestRender();
   }
 
   public void removeLayer(Layer layer) {
     layer.onShutdown(this, connectedNode);
     layers.remove(layer);
+    renderScheduler.requestRender();
   }
 
   public void hideLayer(Layer layer) {
     layers.remove(layer);
+    renderScheduler.requestRender();
   }
 
   @Override
@@ -143,6 +159,7 @@ public class VisualizationView extends GLSurfaceView implements NodeMain {
         for (geometry_msgs.TransformStamped transform : message.getTransforms()) {
           frameTransformTree.update(transform);
         }
+        renderScheduler.requestRender();
       }
     });
   }
@@ -152,6 +169,7 @@ public class VisualizationView extends GLSurfaceView implements NodeMain {
       layer.onStart(connectedNode, getHandler(), frameTransformTree, camera);
     }
     renderer.setLayers(layers);
+    renderScheduler.requestRender();
   }
 
   @Override
@@ -41,8 +41,19 @@ public class XYOrthographicRenderer implements GLSurfaceView.Renderer {
 
   private Camera camera;
 
+  private RenderScheduler renderScheduler;
+
   public XYOrthographicRenderer(Camera camera) {
+    this(camera, null);
+  }
+
+  /**
+   * @param renderScheduler
+   *          scheduler to report drawn frames to, or {@code null}
+   */
+  public XYOrthographicRenderer(Camera camera, RenderScheduler renderScheduler) {
     this.camera = camera;
+    this.renderScheduler = renderScheduler;
   }
 
   @Override
@@ -58,6 +69,9 @@ public class XYOrthographicRenderer implements GLSurfaceView.Renderer {
 
   @Override
   public void onDrawFrame(GL10 gl) {
+    if (renderScheduler != null) {
+      renderScheduler.onDrawFrame();
+    }
     gl.glClear(GL10.GL_COLOR_BUFFER_BIT);
     gl.glLoadIdentity();
     camera.apply(gl);
@@ -21,44 +21,52 @@ import com.google.common.base.Preconditions;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.os.Handler;
+import android.util.Log;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.ros.android.view.visualization.Camera;
 import org.ros.android.view.visualization.TextureBitmap;
+import org.ros.android.view.visualization.VisualizationView;
 import org.ros.message.MessageListener;
 import org.ros.namespace.GraphName;
 import org.ros.node.ConnectedNode;
+import org.ros.node.Node;
 import org.ros.rosjava_geometry.FrameName;
 import org.ros.rosjava_geometry.FrameTransformTree;
 import org.ros.rosjava_geometry.Transform;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
 import javax.microedition.khronos.opengles.GL10;
 
 /**
+ * Renders a {@link nav_msgs.OccupancyGrid} whose data is a compressed image.
+ * <p>
+ * Maps are decoded on a worker thread, so the subscriber is never blocked by
+ * the decoding. If maps come faster than they are decoded, only the newest one
+ * is decoded. The decoded bitmap and pixel array are reused for the next map.
+ * 
  * @author damonkohler@google.com (Damon Kohler)
  * @author moesenle@google.com (Lorenz Moesenlechner)
  */
 public class CompressedOccupancyGridLayer extends SubscriberLayer<nav_msgs.OccupancyGrid> implements
     TfLayer {
 
-  /**
-   * Color of occupied cells in the map.
-   */
-  private static final int COLOR_OCCUPIED = 0xdfffffff;
-
-  /**
-   * Color of free cells in the map.
-   */
-  private static final int COLOR_FREE = 0xff8d8d8d;
-
-  /**
-   * Color of unknown cells in the map.
-   */
-  private static final int COLOR_UNKNOWN = 0xff000000;
+  private static final String TAG = "CompressedOccupancyGridLayer";
 
   private final TextureBitmap textureBitmap;
+  private final AtomicReference<nav_msgs.OccupancyGrid> pendingMessage;
+  private final Runnable decodeTask;
 
-  private boolean ready;
-  private FrameName frame;
+  private ExecutorService decodeExecutor;
+  private Camera camera;
+  // Only used by the decode worker.
+  private Bitmap bitmap;
+  private int[] pixels;
+
+  private volatile boolean ready;
+  private volatile FrameName frame;
 
   public CompressedOccupancyGridLayer(String topic) {
     this(GraphName.of(topic));
@@ -67,6 +75,21 @@ public class CompressedOccupancyGridLayer extends SubscriberLayer<nav_msgs.Occup
   public CompressedOccupancyGridLayer(GraphName topic) {
     super(topic, nav_msgs.OccupancyGrid._TYPE);
     textureBitmap = new TextureBitmap();
+    pendingMessage = new AtomicReference<nav_msgs.OccupancyGrid>();
+    decodeTask = new Runnable() {
+      @Override
+      public void run() {
+        nav_msgs.OccupancyGrid message = pendingMessage.getAndSet(null);
+        if (message != null) {
+          try {
+            update(message);
+          } catch (RuntimeException e) {
+            Log.e(TAG, "Failed to decode map.", e);
+          }
+        }
+      }
+    };
+    pixels = new int[0];
     ready = false;
   }
 
@@ -86,38 +109,82 @@ public class CompressedOccupancyGridLayer extends SubscriberLayer<nav_msgs.Occup
   public void onStart(ConnectedNode connectedNode, Handler handler,
       FrameTransformTree frameTransformTree, Camera camera) {
     super.onStart(connectedNode, handler, frameTransformTree, camera);
+    this.camera = camera;
+    decodeExecutor = Executors.newSingleThreadExecutor();
     getSubscriber().addMessageListener(new MessageListener<nav_msgs.OccupancyGrid>() {
       @Override
       public void onNewMessage(nav_msgs.OccupancyGrid message) {
-        update(message);
+        // If a map is already waiting, it is replaced and the scheduled task
+        // decodes the new one instead.
+        if (pendingMessage.getAndSet(message) == null) {
+          decodeExecutor.execute(decodeTask);
+        }
       }
     });
   }
 
+  @Override
+  public void onShutdown(VisualizationView view, Node node) {
+    super.onShutdown(view, node);
+    decodeExecutor.shutdownNow();
+    pendingMessage.set(null);
+  }
+
   void update(nav_msgs.OccupancyGrid message) {
     ChannelBuffer buffer = message.getData();
-    Bitmap bitmap =
-        BitmapFactory.decodeByteArray(buffer.array(), buffer.arrayOffset(), buffer.readableBytes());
-    int stride = bitmap.getWidth();
-    int height = bitmap.getHeight();
+    Bitmap decoded = decode(buffer.array(), buffer.arrayOffset() + buffer.readerIndex(),
+        buffer.readableBytes());
+    Preconditions.checkNotNull(decoded);
+    int stride = decoded.getWidth();
+    int height = decoded.getHeight();
     Preconditions.checkArgument(stride <= 1024);
     Preconditions.checkArgument(height <= 1024);
-    int[] pixels = new int[stride * height];
-    bitmap.getPixels(pixels, 0, stride, 0, 0, stride, height);
-    for (int i = 0; i < pixels.length; i++) {
+    int size = stride * height;
+    if (pixels.length < size) {
+      pixels = new int[size];
+    }
+    decoded.getPixels(pixels, 0, stride, 0, 0, stride, height);
+    for (int i = 0; i < size; i++) {
       // Pixels are ARGB packed ints.
       if (pixels[i] == 0xffffffff) {
-        pixels[i] = COLOR_UNKNOWN;
+        pixels[i] = OccupancyGridPalette.COLOR_UNKNOWN;
       } else if (pixels[i] == 0xff000000) {
-        pixels[i] = COLOR_FREE;
+        pixels[i] = OccupancyGridPalette.COLOR_FREE;
       } else {
-        pixels[i] = COLOR_OCCUPIED;
+        pixels[i] = OccupancyGridPalette.COLOR_OCCUPIED;
       }
     }
     float resolution = message.getInfo().getResolution();
     Transform origin = Transform.fromPoseMessage(message.getInfo().getOrigin());
-    textureBitmap.updateFromPixelArray(pixels, stride, resolution, origin, COLOR_UNKNOWN);
+    textureBitmap.updateFromPixelArray(pixels, stride, height, resolution, origin,
+        OccupancyGridPalette.COLOR_UNKNOWN);
     frame = FrameName.of(message.getHeader().getFrameId());
     ready = true;
+    camera.requestRender();
+  }
+
+  /**
+   * Decodes into the bitmap of the previous map if possible. Before KitKat
+   * this only works if the size of the map didn't change.
+   */
+  private Bitmap decode(byte[] data, int offset, int length) {
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inMutable = true;
+    options.inSampleSize = 1;
+    if (bitmap != null) {
+      options.inBitmap = bitmap;
+      try {
+        Bitmap decoded = BitmapFactory.decodeByteArray(data, offset, length, options);
+        if (decoded != null) {
+          bitmap = decoded;
+          return decoded;
+        }
+      } catch (IllegalArgumentException e) {
+        // The bitmap can't be reused.
+      }
+      options.inBitmap = null;
+    }
+    bitmap = BitmapFactory.decodeByteArray(data, offset, length, options);
+    return bitmap;
   }
 }
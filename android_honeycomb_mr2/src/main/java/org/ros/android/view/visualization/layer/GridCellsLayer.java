@@ -19,16 +19,13 @@ package org.ros.android.view.visualization.layer;
 import android.os.Handler;
 import org.ros.android.view.visualization.Camera;
 import org.ros.android.view.visualization.Color;
-import org.ros.android.view.visualization.Vertices;
+import org.ros.android.view.visualization.VertexBuffer;
 import org.ros.message.MessageListener;
 import org.ros.namespace.GraphName;
 import org.ros.node.ConnectedNode;
 import org.ros.rosjava_geometry.FrameName;
 import org.ros.rosjava_geometry.FrameTransformTree;
 
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
-
 import javax.microedition.khronos.opengles.GL10;
 
 /**
@@ -37,12 +34,12 @@ import javax.microedition.khronos.opengles.GL10;
 public class GridCellsLayer extends SubscriberLayer<nav_msgs.GridCells> implements TfLayer {
 
   private final Color color;
-  private final Lock lock;
+  private final VertexBuffer vertexBuffer;
 
   private FrameName frame;
   private Camera camera;
-  private boolean ready;
-  private nav_msgs.GridCells message;
+  private float[] vertices;
+  private volatile float cellSize;
 
   public GridCellsLayer(String topicName, Color color) {
     this(GraphName.of(topicName), color);
@@ -52,34 +49,16 @@ public class GridCellsLayer extends SubscriberLayer<nav_msgs.GridCells> implemen
     super(topicName, "nav_msgs/GridCells");
     this.color = color;
     frame = null;
-    lock = new ReentrantLock();
-    ready = false;
+    vertexBuffer = new VertexBuffer();
+    vertices = new float[0];
   }
 
   @Override
   public void draw(GL10 gl) {
-    if (!ready) {
-      return;
-    }
     super.draw(gl);
-    lock.lock();
-    float pointSize =
-        (float) (Math.max(message.getCellWidth(), message.getCellHeight()) * camera.getZoom());
-    float[] vertices = new float[3 * message.getCells().size()];
-    int i = 0;
-    for (geometry_msgs.Point cell : message.getCells()) {
-      vertices[i] = (float) cell.getX();
-      vertices[i + 1] = (float) cell.getY();
-      vertices[i + 2] = 0.0f;
-      i += 3;
-    }
-    gl.glEnableClientState(GL10.GL_VERTEX_ARRAY);
-    gl.glVertexPointer(3, GL10.GL_FLOAT, 0, Vertices.toFloatBuffer(vertices));
     color.apply(gl);
-    gl.glPointSize(pointSize);
-    gl.glDrawArrays(GL10.GL_POINTS, 0, message.getCells().size());
-    gl.glDisableClientState(GL10.GL_VERTEX_ARRAY);
-    lock.unlock();
+    gl.glPointSize((float) (cellSize * camera.getZoom()));
+    vertexBuffer.draw(gl, GL10.GL_POINTS, 0);
   }
 
   @Override
@@ -92,16 +71,29 @@ public class GridCellsLayer extends SubscriberLayer<nav_msgs.GridCells> implemen
       public void onNewMessage(nav_msgs.GridCells data) {
         frame = FrameName.of(data.getHeader().getFrameId());
         if (frameTransformTree.lookUp(frame) != null) {
-          if (lock.tryLock()) {
-            message = data;
-            ready = true;
-            lock.unlock();
-          }
+          updateVertexBuffer(data);
+          GridCellsLayer.this.camera.requestRender();
         }
       }
     });
   }
 
+  private void updateVertexBuffer(nav_msgs.GridCells message) {
+    int size = 3 * message.getCells().size();
+    if (vertices.length < size) {
+      vertices = new float[size];
+    }
+    int i = 0;
+    for (geometry_msgs.Point cell : message.getCells()) {
+      vertices[i] = (float) cell.getX();
+      vertices[i + 1] = (float) cell.getY();
+      vertices[i + 2] = 0.0f;
+      i += 3;
+    }
+    cellSize = Math.max(message.getCellWidth(), message.getCellHeight());
+    vertexBuffer.set(vertices, size);
+  }
+
   @Override
   public FrameName getFrame() {
     return frame;
@@ -18,7 +18,7 @@ package org.ros.android.view.visualization.layer;
 
 import org.ros.android.view.visualization.Camera;
 import org.ros.android.view.visualization.Color;
-import org.ros.android.view.visualization.Vertices;
+import org.ros.android.view.visualization.VertexBuffer;
 import org.ros.message.MessageListener;
 import org.ros.namespace.GraphName;
 import org.ros.node.ConnectedNode;
@@ -27,8 +27,6 @@ import org.ros.rosjava_geometry.FrameTransformTree;
 import org.ros.rosjava_geometry.FrameName;
 import sensor_msgs.LaserScan;
 
-import java.nio.FloatBuffer;
-
 import javax.microedition.khronos.opengles.GL10;
 
 /**
@@ -44,12 +42,11 @@ public class LaserScanLayer extends SubscriberLayer<sensor_msgs.LaserScan> imple
   private static final float LASER_SCAN_POINT_SIZE = 0.1f; // M
   private static final int LASER_SCAN_STRIDE = 15;
 
-  private final Object mutex;
+  private final VertexBuffer vertexBuffer;
 
   private FrameName frame;
   private Camera camera;
-  private FloatBuffer vertexFrontBuffer;
-  private FloatBuffer vertexBackBuffer;
+  private float[] vertices;
 
   public LaserScanLayer(String topicName) {
     this(GraphName.of(topicName));
@@ -57,22 +54,19 @@ public class LaserScanLayer extends SubscriberLayer<sensor_msgs.LaserScan> imple
 
   public LaserScanLayer(GraphName topicName) {
     super(topicName, sensor_msgs.LaserScan._TYPE);
-    mutex = new Object();
+    vertexBuffer = new VertexBuffer();
+    vertices = new float[0];
   }
 
   @Override
   public void draw(GL10 gl) {
-    if (vertexFrontBuffer != null) {
-      synchronized (mutex) {
-        Vertices.drawTriangleFan(gl, vertexFrontBuffer, FREE_SPACE_COLOR);
-        // Drop the first point which is required for the triangle fan but is
-        // not a range reading.
-        FloatBuffer pointVertices = vertexFrontBuffer.duplicate();
-        pointVertices.position(3);
-        Vertices.drawPoints(gl, pointVertices, OCCUPIED_SPACE_COLOR,
-            (float) (LASER_SCAN_POINT_SIZE * camera.getZoom()));
-      }
-    }
+    FREE_SPACE_COLOR.apply(gl);
+    vertexBuffer.draw(gl, GL10.GL_TRIANGLE_FAN, 0);
+    // Drop the first point which is required for the triangle fan but is not
+    // a range reading.
+    OCCUPIED_SPACE_COLOR.apply(gl);
+    gl.glPointSize((float) (LASER_SCAN_POINT_SIZE * camera.getZoom()));
+    vertexBuffer.draw(gl, GL10.GL_POINTS, 1);
   }
 
   @Override
@@ -86,6 +80,7 @@ public class LaserScanLayer extends SubscriberLayer<sensor_msgs.LaserScan> imple
       public void onNewMessage(LaserScan laserScan) {
         frame = FrameName.of(laserScan.getHeader().getFrameId());
         updateVertexBuffer(laserScan, LASER_SCAN_STRIDE);
+        LaserScanLayer.this.camera.requestRender();
       }
     });
   }
@@ -93,14 +88,14 @@ public class LaserScanLayer extends SubscriberLayer<sensor_msgs.LaserScan> imple
   private void updateVertexBuffer(LaserScan laserScan, int stride) {
     float[] ranges = laserScan.getRanges();
     int size = ((ranges.length / stride) + 2) * 3;
-    if (vertexBackBuffer == null || vertexBackBuffer.capacity() < size) {
-      vertexBackBuffer = Vertices.allocateBuffer(size);
+    if (vertices.length < size) {
+      vertices = new float[size];
     }
-    vertexBackBuffer.clear();
     // We start with the origin of the triangle fan.
-    vertexBackBuffer.put(0);
-    vertexBackBuffer.put(0);
-    vertexBackBuffer.put(0);
+    vertices[0] = 0;
+    vertices[1] = 0;
+    vertices[2] = 0;
+    int length = 3;
     float minimumRange = laserScan.getRangeMin();
     float maximumRange = laserScan.getRangeMax();
     float angle = laserScan.getAngleMin();
@@ -113,18 +108,14 @@ public class LaserScanLayer extends SubscriberLayer<sensor_msgs.LaserScan> imple
       // look a lot nicer.
       if (minimumRange < range && range < maximumRange) {
         // x, y, z
-        vertexBackBuffer.put((float) (range * Math.cos(angle)));
-        vertexBackBuffer.put((float) (range * Math.sin(angle)));
-        vertexBackBuffer.put(0);
+        vertices[length] = (float) (range * Math.cos(angle));
+        vertices[length + 1] = (float) (range * Math.sin(angle));
+        vertices[length + 2] = 0;
+        length += 3;
       }
       angle += angleIncrement * stride;
     }
-    vertexBackBuffer.position(0);
-    synchronized (mutex) {
-      FloatBuffer tmp = vertexFrontBuffer;
-      LaserScanLayer.this.vertexFrontBuffer = vertexBackBuffer;
-      vertexBackBuffer = tmp;
-    }
+    vertexBuffer.set(vertices, length);
   }
 
   @Override
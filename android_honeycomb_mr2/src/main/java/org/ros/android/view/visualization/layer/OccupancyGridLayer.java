@@ -22,10 +22,12 @@ import android.os.Handler;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.ros.android.view.visualization.Camera;
 import org.ros.android.view.visualization.TextureBitmap;
-import org.ros.internal.message.MessageBuffers;
+import org.ros.android.view.visualization.VisualizationView;
 import org.ros.message.MessageListener;
 import org.ros.namespace.GraphName;
 import org.ros.node.ConnectedNode;
+import org.ros.node.Node;
+import org.ros.node.topic.Subscriber;
 import org.ros.rosjava_geometry.FrameName;
 import org.ros.rosjava_geometry.FrameTransformTree;
 import org.ros.rosjava_geometry.Transform;
@@ -33,39 +35,65 @@ import org.ros.rosjava_geometry.Transform;
 import javax.microedition.khronos.opengles.GL10;
 
 /**
+ * Renders a {@link nav_msgs.OccupancyGrid}.
+ * <p>
+ * If an updates topic is given, {@link map_msgs.OccupancyGridUpdate} messages
+ * on it are applied to the last full grid in place. Only the updated
+ * rectangle is converted and uploaded, which keeps frequently changing grids
+ * like costmaps cheap to display.
+ * 
  * @author moesenle@google.com (Lorenz Moesenlechner)
  */
 public class OccupancyGridLayer extends SubscriberLayer<nav_msgs.OccupancyGrid> implements TfLayer {
 
-  /**
-   * Color of occupied cells in the map.
-   */
-  private static final int COLOR_OCCUPIED = 0xdfffffff;
-
-  /**
-   * Color of free cells in the map.
-   */
-  private static final int COLOR_FREE = 0xff8d8d8d;
-
-  /**
-   * Color of unknown cells in the map.
-   */
-  private static final int COLOR_UNKNOWN = 0xff000000;
-
-  private final ChannelBuffer pixels;
+  private final GraphName updatesTopic;
+  private final OccupancyGridPalette palette;
   private final TextureBitmap textureBitmap;
 
+  private Subscriber<map_msgs.OccupancyGridUpdate> updatesSubscriber;
+  private int[] regionPixels;
+  private int width;
+  private int height;
   private boolean ready;
   private FrameName frame;
   private GL10 previousGl;
+  private Camera camera;
 
   public OccupancyGridLayer(String topic) {
     this(GraphName.of(topic));
   }
 
   public OccupancyGridLayer(GraphName topic) {
+    this(topic, null);
+  }
+
+  public OccupancyGridLayer(String topic, String updatesTopic) {
+    this(GraphName.of(topic), GraphName.of(updatesTopic));
+  }
+
+  /**
+   * @param topic
+   *          topic of the full grid
+   * @param updatesTopic
+   *          topic of the partial updates of the grid (e.g. the {@code
+   *          _updates} topic of a costmap), or {@code null} to only render
+   *          full grids
+   */
+  public OccupancyGridLayer(GraphName topic, GraphName updatesTopic) {
+    this(topic, updatesTopic, OccupancyGridPalette.newMapPalette());
+  }
+
+  /**
+   * @param palette
+   *          colors of the cell values, e.g.
+   *          {@link OccupancyGridPalette#newCostmapPalette()} for a costmap
+   */
+  public OccupancyGridLayer(GraphName topic, GraphName updatesTopic, OccupancyGridPalette palette) {
     super(topic, nav_msgs.OccupancyGrid._TYPE);
-    pixels = MessageBuffers.dynamicBuffer();
+    Preconditions.checkNotNull(palette);
+    this.updatesTopic = updatesTopic;
+    this.palette = palette;
+    regionPixels = new int[0];
     textureBitmap = new TextureBitmap();
     ready = false;
   }
@@ -90,6 +118,7 @@ public class OccupancyGridLayer extends SubscriberLayer<nav_msgs.OccupancyGrid>
   public void onStart(ConnectedNode connectedNode, Handler handler,
       FrameTransformTree frameTransformTree, Camera camera) {
     super.onStart(connectedNode, handler, frameTransformTree, camera);
+    this.camera = camera;
     previousGl = null;
     getSubscriber().addMessageListener(new MessageListener<nav_msgs.OccupancyGrid>() {
       @Override
@@ -97,28 +126,68 @@ public class OccupancyGridLayer extends SubscriberLayer<nav_msgs.OccupancyGrid>
         update(message);
       }
     });
+    if (updatesTopic != null) {
+      updatesSubscriber =
+          connectedNode.newSubscriber(updatesTopic, map_msgs.OccupancyGridUpdate._TYPE);
+      updatesSubscriber.addMessageListener(new MessageListener<map_msgs.OccupancyGridUpdate>() {
+        @Override
+        public void onNewMessage(map_msgs.OccupancyGridUpdate message) {
+          update(message);
+        }
+      });
+    }
   }
 
-  private void update(nav_msgs.OccupancyGrid message) {
+  @Override
+  public void onShutdown(VisualizationView view, Node node) {
+    if (updatesSubscriber != null) {
+      updatesSubscriber.shutdown();
+      updatesSubscriber = null;
+    }
+    super.onShutdown(view, node);
+  }
+
+  private synchronized void update(nav_msgs.OccupancyGrid message) {
     int stride = message.getInfo().getWidth();
     Preconditions.checkArgument(stride <= 1024);
     Preconditions.checkArgument(message.getInfo().getHeight() <= 1024);
-    ChannelBuffer buffer = message.getData();
-    while (buffer.readable()) {
-      byte pixel = buffer.readByte();
-      if (pixel == -1) {
-        pixels.writeInt(COLOR_UNKNOWN);
-      } else if (pixel == 0) {
-        pixels.writeInt(COLOR_FREE);
-      } else {
-        pixels.writeInt(COLOR_OCCUPIED);
-      }
-    }
     float resolution = message.getInfo().getResolution();
     Transform origin = Transform.fromPoseMessage(message.getInfo().getOrigin());
-    textureBitmap.updateFromPixelBuffer(pixels, stride, resolution, origin, COLOR_UNKNOWN);
-    pixels.clear();
+    textureBitmap.updateFromIndexBuffer(message.getData(), stride, palette.getColors(), resolution,
+        origin, palette.getUnknownColor());
+    width = stride;
+    height = message.getInfo().getHeight();
     frame = FrameName.of(message.getHeader().getFrameId());
     ready = true;
+    camera.requestRender();
+  }
+
+  /**
+   * Applies a partial update to the last full grid. Updates that come before
+   * the first full grid or don't fit into it are ignored, the next full grid
+   * brings their cells anyway.
+   */
+  private synchronized void update(map_msgs.OccupancyGridUpdate message) {
+    int x = message.getX();
+    int y = message.getY();
+    int updateWidth = message.getWidth();
+    int updateHeight = message.getHeight();
+    if (!ready || x < 0 || y < 0 || x + updateWidth > width || y + updateHeight > height) {
+      return;
+    }
+    ChannelBuffer buffer = message.getData();
+    int size = updateWidth * updateHeight;
+    if (buffer.readableBytes() < size) {
+      return;
+    }
+    if (regionPixels.length < size) {
+      regionPixels = new int[size];
+    }
+    int[] colors = palette.getColors();
+    for (int i = 0; i < size; i++) {
+      regionPixels[i] = colors[buffer.readByte() & 0xff];
+    }
+    textureBitmap.updateRegion(regionPixels, x, y, updateWidth, updateHeight);
+    camera.requestRender();
   }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2026 The android_core contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.android.view.visualization.layer;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Maps the 256 possible values of an occupancy grid cell to ARGB colors.
+ */
+public class OccupancyGridPalette {
+
+  /**
+   * Color of occupied cells in the map.
+   */
+  public static final int COLOR_OCCUPIED = 0xdfffffff;
+
+  /**
+   * Color of free cells in the map.
+   */
+  public static final int COLOR_FREE = 0xff8d8d8d;
+
+  /**
+   * Color of unknown cells in the map.
+   */
+  public static final int COLOR_UNKNOWN = 0xff000000;
+
+  /**
+   * Color of costmap cells in the inscribed radius of an obstacle.
+   */
+  public static final int COLOR_INSCRIBED = 0xff00ffff;
+
+  /**
+   * Color of costmap cells with a lethal obstacle.
+   */
+  public static final int COLOR_LETHAL = 0xffff00ff;
+
+  private static final int COSTMAP_INSCRIBED = 99;
+  private static final int COSTMAP_LETHAL = 100;
+
+  private final int[] colors;
+
+  /**
+   * @return palette with the free, occupied and unknown colors of a map
+   */
+  public static OccupancyGridPalette newMapPalette() {
+    int[] colors = new int[256];
+    for (int i = 0; i < colors.length; i++) {
+      colors[i] = COLOR_OCCUPIED;
+    }
+    colors[0] = COLOR_FREE;
+    colors[0xff] = COLOR_UNKNOWN;
+    return new OccupancyGridPalette(colors);
+  }
+
+  /**
+   * @return palette that shows costmap costs from 1 to 98 as a gradient from
+   *         blue to red and inscribed and lethal costs in their own colors
+   */
+  public static OccupancyGridPalette newCostmapPalette() {
+    int[] colors = new int[256];
+    for (int i = 0; i < colors.length; i++) {
+      colors[i] = COLOR_OCCUPIED;
+    }
+    colors[0] = COLOR_FREE;
+    for (int cost = 1; cost < COSTMAP_INSCRIBED; cost++) {
+      colors[cost] = interpolate(0xff0000ff, 0xffff0000, (cost - 1) / (float) (COSTMAP_INSCRIBED - 2));
+    }
+    colors[COSTMAP_INSCRIBED] = COLOR_INSCRIBED;
+    colors[COSTMAP_LETHAL] = COLOR_LETHAL;
+    colors[0xff] = COLOR_UNKNOWN;
+    return new OccupancyGridPalette(colors);
+  }
+
+  private static int interpolate(int from, int to, float fraction) {
+    int result = 0;
+    for (int shift = 0; shift < 32; shift += 8) {
+      int a = (from >>> shift) & 0xff;
+      int b = (to >>> shift) & 0xff;
+      result |= Math.round(a + (b - a) * fraction) << shift;
+    }
+    return result;
+  }
+
+  /**
+   * @param colors
+   *          256 ARGB colors indexed by the unsigned cell value, i.e. the
+   *          color of unknown cells (-1) is the last one
+   */
+  public OccupancyGridPalette(int[] colors) {
+    Preconditions.checkArgument(colors.length == 256);
+    this.colors = colors.clone();
+  }
+
+  public int getColor(byte cell) {
+    return colors[cell & 0xff];
+  }
+
+  public int getUnknownColor() {
+    return colors[0xff];
+  }
+
+  /**
+   * @return the 256 colors of the palette, not to be modified
+   */
+  public int[] getColors() {
+    return colors;
+  }
+}
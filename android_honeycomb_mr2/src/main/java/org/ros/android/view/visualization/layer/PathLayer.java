@@ -21,16 +21,13 @@ import org.ros.android.view.visualization.Color;
 import android.os.Handler;
 import geometry_msgs.PoseStamped;
 import org.ros.android.view.visualization.Camera;
+import org.ros.android.view.visualization.VertexBuffer;
 import org.ros.message.MessageListener;
 import org.ros.namespace.GraphName;
 import org.ros.node.ConnectedNode;
 import org.ros.rosjava_geometry.FrameName;
 import org.ros.rosjava_geometry.FrameTransformTree;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
-
 import javax.microedition.khronos.opengles.GL10;
 
 /**
@@ -44,8 +41,9 @@ public class PathLayer extends SubscriberLayer<nav_msgs.Path> implements TfLayer
   private static final Color COLOR = Color.fromHexAndAlpha("03dfc9", 0.3f);
   private static final float POINT_SIZE = 5.0f;
 
-  private FloatBuffer vertexBuffer;
-  private boolean ready;
+  private final VertexBuffer vertexBuffer;
+
+  private float[] vertices;
   private FrameName frame;
 
   public PathLayer(String topic) {
@@ -54,39 +52,36 @@ public class PathLayer extends SubscriberLayer<nav_msgs.Path> implements TfLayer
 
   public PathLayer(GraphName topic) {
     super(topic, "nav_msgs/Path");
-    ready = false;
+    vertexBuffer = new VertexBuffer();
+    vertices = new float[0];
   }
 
   @Override
   public void draw(GL10 gl) {
-    if (ready) {
-      gl.glEnableClientState(GL10.GL_VERTEX_ARRAY);
-      gl.glVertexPointer(3, GL10.GL_FLOAT, 0, vertexBuffer);
-      COLOR.apply(gl);
-      gl.glPointSize(POINT_SIZE);
-      gl.glDrawArrays(GL10.GL_POINTS, 0, vertexBuffer.limit() / 3);
-      gl.glDisableClientState(GL10.GL_VERTEX_ARRAY);
-    }
+    COLOR.apply(gl);
+    gl.glPointSize(POINT_SIZE);
+    vertexBuffer.draw(gl, GL10.GL_POINTS, 0);
   }
 
   @Override
   public void onStart(ConnectedNode connectedNode, Handler handler, FrameTransformTree frameTransformTree,
-      Camera camera) {
+      final Camera camera) {
     super.onStart(connectedNode, handler, frameTransformTree, camera);
     getSubscriber().addMessageListener(new MessageListener<nav_msgs.Path>() {
       @Override
       public void onNewMessage(nav_msgs.Path path) {
         updateVertexBuffer(path);
-        ready = true;
+        camera.requestRender();
       }
     });
   }
 
   private void updateVertexBuffer(nav_msgs.Path path) {
-    ByteBuffer goalVertexByteBuffer =
-        ByteBuffer.allocateDirect(path.getPoses().size() * 3 * Float.SIZE / 8);
-    goalVertexByteBuffer.order(ByteOrder.nativeOrder());
-    vertexBuffer = goalVertexByteBuffer.asFloatBuffer();
+    int size = path.getPoses().size() * 3;
+    if (vertices.length < size) {
+      vertices = new float[size];
+    }
+    int length = 0;
     if (path.getPoses().size() > 0) {
       frame = FrameName.of(path.getPoses().get(0).getHeader().getFrameId());
       // Path poses are densely packed and will make the path look like a solid
@@ -97,14 +92,15 @@ public class PathLayer extends SubscriberLayer<nav_msgs.Path> implements TfLayer
         // TODO(damonkohler): Choose the separation between points as a pixel
         // value. This will require inspecting the zoom level from the camera.
         if (i % 15 == 0) {
-          vertexBuffer.put((float) pose.getPose().getPosition().getX());
-          vertexBuffer.put((float) pose.getPose().getPosition().getY());
-          vertexBuffer.put((float) pose.getPose().getPosition().getZ());
+          vertices[length] = (float) pose.getPose().getPosition().getX();
+          vertices[length + 1] = (float) pose.getPose().getPosition().getY();
+          vertices[length + 2] = (float) pose.getPose().getPosition().getZ();
+          length += 3;
         }
         i++;
       }
     }
-    vertexBuffer.position(0);
+    vertexBuffer.set(vertices, length);
   }
 
   @Override
@@ -87,12 +87,14 @@ public class PosePublisherLayer extends DefaultLayer {
             angle(pointerVector.getX(), pointerVector.getY(), poseVector.getX(), poseVector.getY());
         pose = Transform.translation(poseVector).multiply(Transform.zRotation(angle));
         shape.setTransform(pose);
+        camera.requestRender();
         return true;
       }
       if (event.getAction() == MotionEvent.ACTION_UP) {
         posePublisher.publish(pose.toPoseStampedMessage(camera.getFrame(),
             connectedNode.getCurrentTime(), posePublisher.newMessage()));
         visible = false;
+        camera.requestRender();
         return true;
       }
     }
@@ -118,6 +120,7 @@ public class PosePublisherLayer extends DefaultLayer {
                     Transform.translation(camera.toMetricCoordinates((int) e.getX(), (int) e.getY()));
                 shape.setTransform(pose);
                 visible = true;
+                camera.requestRender();
               }
             });
       }
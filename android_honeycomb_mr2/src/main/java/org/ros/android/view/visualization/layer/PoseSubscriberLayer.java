@@ -60,7 +60,7 @@ public class PoseSubscriberLayer extends SubscriberLayer<geometry_msgs.PoseStamp
 
   @Override
   public void onStart(ConnectedNode connectedNode, Handler handler,
-      final FrameTransformTree frameTransformTree, Camera camera) {
+      final FrameTransformTree frameTransformTree, final Camera camera) {
     super.onStart(connectedNode, handler, frameTransformTree, camera);
     shape = new GoalShape();
     getSubscriber().addMessageListener(new MessageListener<geometry_msgs.PoseStamped>() {
@@ -72,6 +72,7 @@ public class PoseSubscriberLayer extends SubscriberLayer<geometry_msgs.PoseStamp
           Transform poseTransform = Transform.fromPoseMessage(pose.getPose());
           shape.setTransform(frameTransform.getTransform().multiply(poseTransform));
           ready = true;
+          camera.requestRender();
         }
       }
     });
@@ -0,0 +1,385 @@
+/*
+ * Copyright (C) 2026 The android_core contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.android.acm_serial;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A single-producer/single-consumer ring of bytes.
+ * <p>
+ * The producer and consumer never share a lock. {@code head} and {@code tail}
+ * are monotonically increasing byte counts that are masked into the backing
+ * array, which is why the capacity must be a power of two. Only the producer
+ * writes {@code head}. The consumer advances {@code tail} with a
+ * compare-and-set so that the producer can also advance it when it drops the
+ * oldest bytes; a consumer that loses that race simply copies again. When
+ * either side has to wait it parks its thread and relies on the other side to
+ * unpark it after publishing a new index. Index updates are volatile writes so
+ * that they are ordered before the check for a parked peer.
+ * <p>
+ * When the ring grows, the producer copies the live bytes into a larger array
+ * and publishes it before writing anything new. The consumer always reads
+ * {@code head} before {@code buffer}, so it never sees bytes that were written
+ * to an array it doesn't know about yet.
+ */
+class ByteRingBuffer {
+
+  private final int maxCapacity;
+  private final OverflowPolicy overflowPolicy;
+
+  /**
+   * Total number of bytes ever written. Only the producer writes this.
+   */
+  private final AtomicLong head;
+
+  /**
+   * Total number of bytes ever read or dropped.
+   */
+  private final AtomicLong tail;
+
+  private volatile byte[] buffer;
+  private volatile Thread waitingProducer;
+  private volatile Thread waitingConsumer;
+  private volatile boolean closed;
+
+  // Statistics. Only the producer writes these.
+  private volatile long droppedByteCount;
+  private volatile int highWaterMark;
+
+  private byte[] discardBuffer;
+
+  /**
+   * @param capacity
+   *          the size of the ring in bytes, must be a power of two
+   */
+  public ByteRingBuffer(int capacity) {
+    this(capacity, capacity, OverflowPolicy.BLOCK);
+  }
+
+  /**
+   * @param capacity
+   *          the initial size of the ring in bytes, must be a power of two
+   * @param maxCapacity
+   *          the size the ring may grow to when using
+   *          {@link OverflowPolicy#GROW}, must be a power of two
+   * @param overflowPolicy
+   *          what to do when the ring is full
+   */
+  public ByteRingBuffer(int capacity, int maxCapacity, OverflowPolicy overflowPolicy) {
+    Preconditions.checkArgument(isPowerOfTwo(capacity), "Capacity must be a power of two.");
+    Preconditions.checkArgument(isPowerOfTwo(maxCapacity),
+        "Maximum capacity must be a power of two.");
+    Preconditions.checkArgument(maxCapacity >= capacity,
+        "Maximum capacity must not be less than capacity.");
+    Preconditions.checkNotNull(overflowPolicy);
+    this.maxCapacity = maxCapacity;
+    this.overflowPolicy = overflowPolicy;
+    buffer = new byte[capacity];
+    head = new AtomicLong();
+    tail = new AtomicLong();
+    closed = false;
+  }
+
+  private static boolean isPowerOfTwo(int value) {
+    return value > 0 && (value & (value - 1)) == 0;
+  }
+
+  public int capacity() {
+    return buffer.length;
+  }
+
+  public OverflowPolicy getOverflowPolicy() {
+    return overflowPolicy;
+  }
+
+  /**
+   * @return the number of bytes that had to be discarded because the ring was
+   *         full
+   */
+  public long getDroppedByteCount() {
+    return droppedByteCount;
+  }
+
+  /**
+   * @return the largest number of bytes that have been buffered at once
+   */
+  public int getHighWaterMark() {
+    return highWaterMark;
+  }
+
+  /**
+   * @return the number of bytes that can be read without blocking
+   */
+  public int available() {
+    return (int) (head.get() - tail.get());
+  }
+
+  /**
+   * @return the number of bytes that can be written without overflowing
+   */
+  public int remaining() {
+    return buffer.length - available();
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Reads directly from the {@link InputStream} into the ring. If the ring is
+   * full, the {@link OverflowPolicy} decides whether to block, make room or
+   * discard what is read. Throws {@link InterruptedException} once the ring has
+   * been closed.
+   * <p>
+   * Must only be called by the producer thread.
+   *
+   * @param inputStream
+   *          the {@link InputStream} to read from
+   * @param maxLength
+   *          the maximum number of bytes to read
+   * @return the number of bytes read (including any that were discarded) or -1
+   *         if the end of the stream was reached
+   */
+  public int write(InputStream inputStream, int maxLength) throws IOException,
+      InterruptedException {
+    if (closed) {
+      throw new InterruptedException();
+    }
+    if (remaining() == 0) {
+      switch (overflowPolicy) {
+        case BLOCK:
+          awaitRemaining();
+          break;
+        case DROP_OLDEST:
+          return overwriteOldest(inputStream, maxLength);
+        case DROP_NEWEST:
+          return discard(inputStream, maxLength);
+        case GROW:
+          if (buffer.length < maxCapacity) {
+            grow();
+          } else {
+            return discard(inputStream, maxLength);
+          }
+          break;
+      }
+    }
+    byte[] currentBuffer = buffer;
+    long currentHead = head.get();
+    int index = (int) currentHead & (currentBuffer.length - 1);
+    // Never read across the end of the backing array. The next call will start
+    // again at index 0.
+    int length = Math.min(maxLength, Math.min(remaining(), currentBuffer.length - index));
+    int bytesRead = inputStream.read(currentBuffer, index, length);
+    if (bytesRead > 0) {
+      head.set(currentHead + bytesRead);
+      signalConsumer();
+      int available = available();
+      if (available > highWaterMark) {
+        highWaterMark = available;
+      }
+    }
+    return bytesRead;
+  }
+
+  /**
+   * Copies bytes out of the ring. Blocks until at least one byte is available.
+   * <p>
+   * Must only be called by the consumer thread.
+   *
+   * @return the number of bytes read or -1 if the ring is closed and empty
+   */
+  public int read(byte[] destination, int offset, int length) throws InterruptedException {
+    while (true) {
+      if (!awaitAvailable()) {
+        return -1;
+      }
+      // Order matters here, see the class comment.
+      long currentHead = head.get();
+      byte[] currentBuffer = buffer;
+      long currentTail = tail.get();
+      if (currentTail >= currentHead) {
+        // The producer dropped everything we were about to read.
+        continue;
+      }
+      int bytesRead = (int) Math.min(length, currentHead - currentTail);
+      int index = (int) currentTail & (currentBuffer.length - 1);
+      int firstLength = Math.min(bytesRead, currentBuffer.length - index);
+      System.arraycopy(currentBuffer, index, destination, offset, firstLength);
+      if (firstLength < bytesRead) {
+        System.arraycopy(currentBuffer, 0, destination, offset + firstLength, bytesRead
+            - firstLength);
+      }
+      if (tail.compareAndSet(currentTail, currentTail + bytesRead)) {
+        signalProducer();
+        return bytesRead;
+      }
+    }
+  }
+
+  /**
+   * Reads a single byte. Blocks until a byte is available.
+   * <p>
+   * Must only be called by the consumer thread.
+   *
+   * @return the byte as an unsigned value or -1 if the ring is closed and empty
+   */
+  public int read() throws InterruptedException {
+    while (true) {
+      if (!awaitAvailable()) {
+        return -1;
+      }
+      long currentHead = head.get();
+      byte[] currentBuffer = buffer;
+      long currentTail = tail.get();
+      if (currentTail >= currentHead) {
+        continue;
+      }
+      int value = currentBuffer[(int) currentTail & (currentBuffer.length - 1)] & 0xff;
+      if (tail.compareAndSet(currentTail, currentTail + 1)) {
+        signalProducer();
+        return value;
+      }
+    }
+  }
+
+  /**
+   * Wakes up both sides. Pending data can still be read, after which reads
+   * return -1.
+   */
+  public void close() {
+    closed = true;
+    signalConsumer();
+    signalProducer();
+  }
+
+  private int overwriteOldest(InputStream inputStream, int maxLength) throws IOException {
+    // Don't drop anything until there actually is something new to replace it
+    // with.
+    int bytesRead = readIntoDiscardBuffer(inputStream, maxLength);
+    if (bytesRead <= 0) {
+      return bytesRead;
+    }
+    while (true) {
+      long currentTail = tail.get();
+      int dropLength = bytesRead - (buffer.length - (int) (head.get() - currentTail));
+      if (dropLength <= 0) {
+        // The consumer made room in the meantime.
+        break;
+      }
+      if (tail.compareAndSet(currentTail, currentTail + dropLength)) {
+        droppedByteCount += dropLength;
+        break;
+      }
+    }
+    byte[] currentBuffer = buffer;
+    long currentHead = head.get();
+    int index = (int) currentHead & (currentBuffer.length - 1);
+    int firstLength = Math.min(bytesRead, currentBuffer.length - index);
+    System.arraycopy(discardBuffer, 0, currentBuffer, index, firstLength);
+    if (firstLength < bytesRead) {
+      System.arraycopy(discardBuffer, firstLength, currentBuffer, 0, bytesRead - firstLength);
+    }
+    head.set(currentHead + bytesRead);
+    signalConsumer();
+    highWaterMark = currentBuffer.length;
+    return bytesRead;
+  }
+
+  private int readIntoDiscardBuffer(InputStream inputStream, int maxLength) throws IOException {
+    if (discardBuffer == null || discardBuffer.length < maxLength) {
+      discardBuffer = new byte[maxLength];
+    }
+    return inputStream.read(discardBuffer, 0, Math.min(maxLength, buffer.length));
+  }
+
+  private int discard(InputStream inputStream, int maxLength) throws IOException {
+    int bytesRead = readIntoDiscardBuffer(inputStream, maxLength);
+    if (bytesRead > 0) {
+      droppedByteCount += bytesRead;
+    }
+    return bytesRead;
+  }
+
+  private void grow() {
+    byte[] currentBuffer = buffer;
+    byte[] newBuffer = new byte[currentBuffer.length * 2];
+    long currentHead = head.get();
+    // Bytes the consumer reads while we copy are simply copied for nothing.
+    long position = tail.get();
+    while (position < currentHead) {
+      int from = (int) position & (currentBuffer.length - 1);
+      int to = (int) position & (newBuffer.length - 1);
+      int length =
+          (int) Math.min(currentHead - position,
+              Math.min(currentBuffer.length - from, newBuffer.length - to));
+      System.arraycopy(currentBuffer, from, newBuffer, to, length);
+      position += length;
+    }
+    buffer = newBuffer;
+  }
+
+  private boolean awaitAvailable() throws InterruptedException {
+    while (available() == 0) {
+      if (closed) {
+        return available() > 0;
+      }
+      waitingConsumer = Thread.currentThread();
+      // Check again after announcing ourselves so that we can't miss a signal
+      // from a producer that wrote in between.
+      if (available() == 0 && !closed) {
+        LockSupport.park(this);
+      }
+      waitingConsumer = null;
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+    }
+    return true;
+  }
+
+  private void awaitRemaining() throws InterruptedException {
+    while (remaining() == 0) {
+      waitingProducer = Thread.currentThread();
+      if (remaining() == 0 && !closed) {
+        LockSupport.park(this);
+      }
+      waitingProducer = null;
+      if (Thread.interrupted() || closed) {
+        throw new InterruptedException();
+      }
+    }
+  }
+
+  private void signalConsumer() {
+    Thread thread = waitingConsumer;
+    if (thread != null) {
+      LockSupport.unpark(thread);
+    }
+  }
+
+  private void signalProducer() {
+    Thread thread = waitingProducer;
+    if (thread != null) {
+      LockSupport.unpark(thread);
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2026 The android_core contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.android.acm_serial;
+
+/**
+ * What a {@link PollingInputStream} does when its buffer is full because the
+ * reader has fallen behind.
+ */
+public enum OverflowPolicy {
+
+  /**
+   * Stop reading from the underlying stream until the reader catches up. No
+   * bytes are dropped, but the underlying stream may back up.
+   */
+  BLOCK,
+
+  /**
+   * Discard the oldest buffered bytes to make room for new ones.
+   */
+  DROP_OLDEST,
+
+  /**
+   * Keep reading from the underlying stream but discard what was read until
+   * the reader catches up.
+   */
+  DROP_NEWEST,
+
+  /**
+   * Double the buffer until it reaches its maximum capacity, then behave like
+   * {@link #DROP_NEWEST}.
+   */
+  GROW
+}
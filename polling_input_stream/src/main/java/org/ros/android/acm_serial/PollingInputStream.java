@@ -23,10 +23,16 @@ import org.ros.exception.RosRuntimeException;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.util.concurrent.ExecutorService;
 
 /**
  * Constantly reads from an {@link InputStream} into a buffer.
+ * <p>
+ * The read loop and the reader share a lock-free {@link ByteRingBuffer}. Both
+ * sides block (rather than spin) while the buffer is empty or full, so an idle
+ * stream costs no CPU. What happens when the reader falls behind is decided by
+ * an {@link OverflowPolicy}.
  * 
  * @author damonkohler@google.com (Damon Kohler)
  */
@@ -38,49 +44,83 @@ public class PollingInputStream extends InputStream {
   private final static int BUFFER_CAPACITY = 512 * 1024;
   private final static int READ_SIZE = 256;
 
-  private final byte[] readBuffer;
+  private final ByteRingBuffer ringBuffer;
 
-  private int readPosition;
-  private int writePosition;
+  /**
+   * @param inputStream
+   *          the {@link InputStream} to read from
+   * @param executorService
+   *          used to execute the read loop
+   */
+  public PollingInputStream(InputStream inputStream, ExecutorService executorService) {
+    this(inputStream, executorService, BUFFER_CAPACITY);
+  }
+
+  /**
+   * @param inputStream
+   *          the {@link InputStream} to read from
+   * @param executorService
+   *          used to execute the read loop
+   * @param capacity
+   *          the size of the buffer in bytes, must be a power of two
+   */
+  public PollingInputStream(InputStream inputStream, ExecutorService executorService,
+      int capacity) {
+    this(inputStream, executorService, capacity, capacity, OverflowPolicy.BLOCK);
+  }
 
   /**
    * @param inputStream
    *          the {@link InputStream} to read from
    * @param executorService
    *          used to execute the read loop
+   * @param capacity
+   *          the initial size of the buffer in bytes, must be a power of two
+   * @param maxCapacity
+   *          the size the buffer may grow to when using
+   *          {@link OverflowPolicy#GROW}, must be a power of two
+   * @param overflowPolicy
+   *          what to do when the reader falls behind and the buffer is full
    */
-  public PollingInputStream(final InputStream inputStream, ExecutorService executorService) {
-    readBuffer = new byte[BUFFER_CAPACITY];
-    readPosition = 0;
-    writePosition = 0;
+  public PollingInputStream(final InputStream inputStream, ExecutorService executorService,
+      int capacity, int maxCapacity, OverflowPolicy overflowPolicy) {
+    ringBuffer = new ByteRingBuffer(capacity, maxCapacity, overflowPolicy);
     executorService.execute(new CancellableLoop() {
+      private long previousDroppedByteCount;
+      // Set while reads keep dropping bytes, so each overflow is reported once.
+      private boolean overflowing;
+
       @Override
       protected void loop() throws InterruptedException {
         try {
-          while (remaining() < READ_SIZE) {
-            if (readPosition < remaining()) {
-              // There isn't enough room to compact the buffer yet. We will most
-              // likely start dropping messages.
-              log.error("Not enough room to compact buffer.");
-              Thread.yield();
-              continue;
+          int bytesRead = ringBuffer.write(inputStream, READ_SIZE);
+          if (bytesRead < 0) {
+            ringBuffer.close();
+            throw new IOException("Stream closed.");
+          }
+          long droppedByteCount = ringBuffer.getDroppedByteCount();
+          if (droppedByteCount != previousDroppedByteCount) {
+            // Only report the start of an overflow, not every dropped read.
+            if (!overflowing || DEBUG) {
+              log.error(String.format("Buffer full, dropping bytes (%s). %d bytes dropped so far.",
+                  ringBuffer.getOverflowPolicy(), droppedByteCount));
             }
-            synchronized (readBuffer) {
-              int remaining = remaining();
-              System.arraycopy(readBuffer, writePosition, readBuffer, 0, remaining);
-              writePosition = remaining;
-              readPosition = 0;
-              if (DEBUG) {
-                log.info(String.format("Buffer compacted. %d bytes remaining.", remaining()));
-              }
+            overflowing = true;
+            previousDroppedByteCount = droppedByteCount;
+          } else if (overflowing) {
+            // A read without drops ends the overflow.
+            overflowing = false;
+            if (DEBUG) {
+              log.info(String.format("Buffer no longer full. %d bytes dropped so far.",
+                  droppedByteCount));
             }
           }
-          int bytesRead = inputStream.read(readBuffer, writePosition, READ_SIZE);
-          if (bytesRead < 0) {
-            throw new IOException("Stream closed.");
+          if (DEBUG) {
+            log.info(String.format("Read %d bytes. %d bytes buffered.", bytesRead,
+                ringBuffer.available()));
           }
-          writePosition += bytesRead;
         } catch (IOException e) {
+          ringBuffer.close();
           throw new RosRuntimeException(e);
         }
       }
@@ -89,33 +129,60 @@ public class PollingInputStream extends InputStream {
 
   @Override
   public synchronized int read(byte[] buffer, int offset, int length) throws IOException {
-    int bytesRead = 0;
-    if (length > 0) {
-      while (available() == 0) {
-        // Block until there are bytes to read.
-        Thread.yield();
-      }
-      synchronized (readBuffer) {
-        bytesRead = Math.min(length, available());
-        System.arraycopy(readBuffer, readPosition, buffer, offset, bytesRead);
-        readPosition += bytesRead;
-      }
+    if (length == 0) {
+      return 0;
+    }
+    try {
+      return ringBuffer.read(buffer, offset, length);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
     }
-    return bytesRead;
   }
 
   @Override
-  public int read() throws IOException {
-    byte[] buffer = new byte[1];
-    return read(buffer, 0, 1);
+  public synchronized int read() throws IOException {
+    try {
+      return ringBuffer.read();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
   }
 
   @Override
   public int available() throws IOException {
-    return writePosition - readPosition;
+    return ringBuffer.available();
+  }
+
+  /**
+   * @return the current size of the buffer in bytes
+   */
+  public int getCapacity() {
+    return ringBuffer.capacity();
+  }
+
+  public OverflowPolicy getOverflowPolicy() {
+    return ringBuffer.getOverflowPolicy();
+  }
+
+  /**
+   * @return the number of bytes that were discarded because the reader fell
+   *         behind
+   */
+  public long getDroppedByteCount() {
+    return ringBuffer.getDroppedByteCount();
   }
 
-  private int remaining() {
-    return BUFFER_CAPACITY - writePosition;
+  /**
+   * @return the largest number of bytes that have been buffered at once
+   */
+  public int getHighWaterMark() {
+    return ringBuffer.getHighWaterMark();
+  }
+
+  @Override
+  public void close() throws IOException {
+    ringBuffer.close();
   }
 }
@@ -18,13 +18,19 @@ package org.ros.android.acm_serial;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
 import java.io.IOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * @author damonkohler@google.com (Damon Kohler)
@@ -87,4 +93,217 @@ public class PollingInputStreamTest {
     }
     assertArrayEquals(expectedBuffer, actualBuffer);
   }
+
+  @Test
+  public void testReadWrapsAroundBuffer() throws IOException {
+    PipedInputStream pipedInputStream = new PipedInputStream();
+    PipedOutputStream pipedOutputStream = new PipedOutputStream(pipedInputStream);
+    PollingInputStream pollingInputStream =
+        new PollingInputStream(pipedInputStream, Executors.newCachedThreadPool(), 64);
+    byte[] expectedBuffer = new byte[48];
+    for (int i = 0; i < expectedBuffer.length; i++) {
+      expectedBuffer[i] = (byte) i;
+    }
+    byte[] actualBuffer = new byte[48];
+    for (int i = 0; i < 4; i++) {
+      pipedOutputStream.write(expectedBuffer);
+      pipedOutputStream.flush();
+      int bytesRead = 0;
+      while (bytesRead < actualBuffer.length) {
+        bytesRead +=
+            pollingInputStream.read(actualBuffer, bytesRead, actualBuffer.length - bytesRead);
+      }
+      assertArrayEquals(expectedBuffer, actualBuffer);
+    }
+  }
+
+  @Test
+  public void testSingleByteRead() throws IOException {
+    PipedInputStream pipedInputStream = new PipedInputStream();
+    PipedOutputStream pipedOutputStream = new PipedOutputStream(pipedInputStream);
+    PollingInputStream pollingInputStream =
+        new PollingInputStream(pipedInputStream, Executors.newCachedThreadPool());
+    pipedOutputStream.write(new byte[] { 42, (byte) 0xff });
+    pipedOutputStream.flush();
+    assertEquals(42, pollingInputStream.read());
+    assertEquals(0xff, pollingInputStream.read());
+  }
+
+  @Test(timeout = 30000)
+  public void testThroughput() throws Exception {
+    final int totalBytes = 16 * 1024 * 1024;
+    PipedInputStream pipedInputStream = new PipedInputStream(64 * 1024);
+    final PipedOutputStream pipedOutputStream = new PipedOutputStream(pipedInputStream);
+    // A small buffer forces the reader and writer to block on each other.
+    PollingInputStream pollingInputStream =
+        new PollingInputStream(pipedInputStream, Executors.newCachedThreadPool(), 4096);
+    Thread writer = new Thread() {
+      @Override
+      public void run() {
+        byte[] chunk = new byte[1000];
+        try {
+          for (int written = 0; written < totalBytes; written += chunk.length) {
+            int length = Math.min(chunk.length, totalBytes - written);
+            for (int i = 0; i < length; i++) {
+              chunk[i] = (byte) (written + i);
+            }
+            pipedOutputStream.write(chunk, 0, length);
+          }
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+    writer.start();
+    byte[] buffer = new byte[777];
+    int bytesRead = 0;
+    while (bytesRead < totalBytes) {
+      int count = pollingInputStream.read(buffer, 0, buffer.length);
+      for (int i = 0; i < count; i++) {
+        assertEquals((byte) (bytesRead + i), buffer[i]);
+      }
+      bytesRead += count;
+    }
+    writer.join();
+  }
+
+  @Test
+  public void testIdleReaderDoesNotSpin() throws Exception {
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    if (!threadMXBean.isThreadCpuTimeSupported()) {
+      return;
+    }
+    threadMXBean.setThreadCpuTimeEnabled(true);
+    final Thread[] loopThread = new Thread[1];
+    ExecutorService executorService = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        loopThread[0] = new Thread(runnable);
+        return loopThread[0];
+      }
+    });
+    PipedInputStream pipedInputStream = new PipedInputStream();
+    PipedOutputStream pipedOutputStream = new PipedOutputStream(pipedInputStream);
+    final PollingInputStream pollingInputStream =
+        new PollingInputStream(pipedInputStream, executorService);
+    final byte[] actualBuffer = new byte[1];
+    Thread reader = new Thread() {
+      @Override
+      public void run() {
+        try {
+          pollingInputStream.read(actualBuffer, 0, 1);
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+    reader.start();
+    // Let both threads settle into their blocked state.
+    Thread.sleep(100);
+    long readerStartTime = threadMXBean.getThreadCpuTime(reader.getId());
+    long loopStartTime = threadMXBean.getThreadCpuTime(loopThread[0].getId());
+    Thread.sleep(1000);
+    long readerCpuMillis = (threadMXBean.getThreadCpuTime(reader.getId()) - readerStartTime) / 1000000;
+    long loopCpuMillis =
+        (threadMXBean.getThreadCpuTime(loopThread[0].getId()) - loopStartTime) / 1000000;
+    assertTrue("Reader used " + readerCpuMillis + " ms of CPU while idle.", readerCpuMillis < 100);
+    assertTrue("Read loop used " + loopCpuMillis + " ms of CPU while idle.", loopCpuMillis < 100);
+    pipedOutputStream.write(42);
+    pipedOutputStream.flush();
+    reader.join(1000);
+    assertEquals(42, actualBuffer[0]);
+  }
+
+  @Test
+  public void testDropNewest() throws Exception {
+    PipedInputStream pipedInputStream = new PipedInputStream(8192);
+    PipedOutputStream pipedOutputStream = new PipedOutputStream(pipedInputStream);
+    PollingInputStream pollingInputStream =
+        new PollingInputStream(pipedInputStream, Executors.newCachedThreadPool(), 1024, 1024,
+            OverflowPolicy.DROP_NEWEST);
+    byte[] expectedBuffer = newSequence(4096);
+    pipedOutputStream.write(expectedBuffer);
+    pipedOutputStream.flush();
+    awaitDroppedByteCount(pollingInputStream, 3072);
+    assertEquals(1024, pollingInputStream.getHighWaterMark());
+    byte[] actualBuffer = readFully(pollingInputStream, 1024);
+    assertArrayEquals(Arrays.copyOfRange(expectedBuffer, 0, 1024), actualBuffer);
+  }
+
+  @Test
+  public void testDropOldest() throws Exception {
+    PipedInputStream pipedInputStream = new PipedInputStream(8192);
+    PipedOutputStream pipedOutputStream = new PipedOutputStream(pipedInputStream);
+    PollingInputStream pollingInputStream =
+        new PollingInputStream(pipedInputStream, Executors.newCachedThreadPool(), 1024, 1024,
+            OverflowPolicy.DROP_OLDEST);
+    byte[] expectedBuffer = newSequence(4096);
+    pipedOutputStream.write(expectedBuffer);
+    pipedOutputStream.flush();
+    awaitDroppedByteCount(pollingInputStream, 3072);
+    assertEquals(1024, pollingInputStream.getHighWaterMark());
+    byte[] actualBuffer = readFully(pollingInputStream, 1024);
+    assertArrayEquals(Arrays.copyOfRange(expectedBuffer, 3072, 4096), actualBuffer);
+  }
+
+  @Test
+  public void testGrowUpToMaxCapacity() throws Exception {
+    PipedInputStream pipedInputStream = new PipedInputStream(8192);
+    PipedOutputStream pipedOutputStream = new PipedOutputStream(pipedInputStream);
+    PollingInputStream pollingInputStream =
+        new PollingInputStream(pipedInputStream, Executors.newCachedThreadPool(), 1024, 4096,
+            OverflowPolicy.GROW);
+    byte[] expectedBuffer = newSequence(6144);
+    pipedOutputStream.write(expectedBuffer);
+    pipedOutputStream.flush();
+    // Once the buffer can't grow any more, the newest bytes are dropped.
+    awaitDroppedByteCount(pollingInputStream, 2048);
+    assertEquals(4096, pollingInputStream.getCapacity());
+    assertEquals(4096, pollingInputStream.getHighWaterMark());
+    byte[] actualBuffer = readFully(pollingInputStream, 4096);
+    assertArrayEquals(Arrays.copyOfRange(expectedBuffer, 0, 4096), actualBuffer);
+  }
+
+  @Test
+  public void testBlockDoesNotDrop() throws Exception {
+    PipedInputStream pipedInputStream = new PipedInputStream(8192);
+    PipedOutputStream pipedOutputStream = new PipedOutputStream(pipedInputStream);
+    PollingInputStream pollingInputStream =
+        new PollingInputStream(pipedInputStream, Executors.newCachedThreadPool(), 1024);
+    byte[] expectedBuffer = newSequence(4096);
+    pipedOutputStream.write(expectedBuffer);
+    pipedOutputStream.flush();
+    byte[] actualBuffer = readFully(pollingInputStream, 4096);
+    assertArrayEquals(expectedBuffer, actualBuffer);
+    assertEquals(0, pollingInputStream.getDroppedByteCount());
+    assertEquals(1024, pollingInputStream.getHighWaterMark());
+  }
+
+  private static byte[] newSequence(int length) {
+    byte[] buffer = new byte[length];
+    for (int i = 0; i < length; i++) {
+      buffer[i] = (byte) i;
+    }
+    return buffer;
+  }
+
+  private static byte[] readFully(PollingInputStream pollingInputStream, int length)
+      throws IOException {
+    byte[] buffer = new byte[length];
+    int bytesRead = 0;
+    while (bytesRead < length) {
+      bytesRead += pollingInputStream.read(buffer, bytesRead, length - bytesRead);
+    }
+    return buffer;
+  }
+
+  private static void awaitDroppedByteCount(PollingInputStream pollingInputStream,
+      long droppedByteCount) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (pollingInputStream.getDroppedByteCount() < droppedByteCount
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(droppedByteCount, pollingInputStream.getDroppedByteCount());
+  }
 }